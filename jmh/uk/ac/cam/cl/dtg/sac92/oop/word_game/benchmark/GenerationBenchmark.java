@@ -0,0 +1,85 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.Difficulty;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.DifficultyGenerator;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.Exploration;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.GameState;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Grid;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.TileCollection;
+
+/**
+ * Measures the time DifficultyGenerator.generateRequiredNumber takes on a
+ * fixed-seed board, for each difficulty and exploration. The cache is
+ * cleared before each call, otherwise every call after the first would be a
+ * hit. The deep difficulties take far longer than the shallow ones, so the
+ * average time per call is reported rather than a throughput.
+ *
+ * The gc profiler counts the bytes allocated by every thread, so the
+ * allocation of PARALLEL includes the fork/join workers, but only those that
+ * live through the whole iteration. SERIAL does all its work on the
+ * benchmark thread, so its figure is exact.
+ *
+ *     java -jar target/benchmarks.jar GenerationBenchmark -prof gc
+ *
+ * @author Navid
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenerationBenchmark {
+
+	private static final int WIDTH = 8;
+	private static final int HEIGHT = 8;
+	private static final long SEED = 1L;
+
+	@Param({"LEVEL_1", "LEVEL_2", "LEVEL_3", "LEVEL_4", "LEVEL_5", "LEVEL_6"})
+	public Difficulty difficulty;
+
+	@Param({"SERIAL", "PARALLEL"})
+	public Exploration exploration;
+
+	private GameState root;
+	private Exploration previous;
+
+	@Setup
+	public void setUp()
+	{
+		root = new GameState(new Grid(WIDTH, HEIGHT,
+				new TileCollection(SEED)));
+		previous = DifficultyGenerator.getExploration(difficulty);
+		DifficultyGenerator.setExploration(difficulty, exploration);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		DifficultyGenerator.setExploration(difficulty, previous);
+	}
+
+	@Benchmark
+	public int generateRequiredNumber()
+	{
+		DifficultyGenerator.clearCache();
+		DifficultyGenerator.generateRequiredNumber(difficulty, root);
+		return DifficultyGenerator.getRequiredNumber();
+	}
+}
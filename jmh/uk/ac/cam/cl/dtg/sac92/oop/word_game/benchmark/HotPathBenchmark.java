@@ -0,0 +1,135 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.Difficulty;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.GameState;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.GameTree;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.Node;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.TargetSolver;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.ValueEnumerator;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.ValueHistogram;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Grid;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Tile;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.TileCollection;
+
+/**
+ * Measures the throughput of the game tree and grid hot paths on a
+ * fixed-seed board, so that a change to one of them can be compared before
+ * and after. Each benchmark is named after the method it times.
+ *
+ * Run with the gc profiler to get the bytes allocated per operation:
+ *
+ *     java -jar target/benchmarks.jar HotPathBenchmark -prof gc
+ *
+ * @author Navid
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HotPathBenchmark {
+
+	private static final int WIDTH = 8;
+	private static final int HEIGHT = 8;
+	private static final long SEED = 1L;
+
+	private Grid grid;
+	private GameState root;
+	private GameState middle;
+	private Tile last;
+	private GameTree tree;
+	private ValueHistogram histogram;
+	private int rare;
+
+	@Setup
+	public void setUp()
+	{
+		grid = new Grid(WIDTH, HEIGHT, new TileCollection(SEED));
+		root = new GameState(grid);
+		middle = middleGameState(root);
+		last = grid.tileAt(grid.cells() - 1);
+		tree = new GameTree(root, 5);
+		histogram = ValueEnumerator.histogram(root, Difficulty.LEVEL_5.depth());
+		rare = ValueEnumerator.histogram(root, Difficulty.LEVEL_3.depth())
+				.valueAtRarity(Difficulty.LEVEL_3.fraction());
+	}
+
+	/**
+	 * Generates the moves from a mid-game state, nextGameStates() being
+	 * package-private, by building one level of a tree below it.
+	 */
+	@Benchmark
+	public int gameTreeBuildTreeOneLevel()
+	{
+		Node<GameState> node = new Node<GameState>(middle);
+		GameTree.buildTree(node, 1);
+		return node.getChildren().size();
+	}
+
+	@Benchmark
+	public Object gridClone()
+	{
+		return grid.clone();
+	}
+
+	@Benchmark
+	public int gridPositionOf()
+	{
+		return grid.positionOf(last).x;
+	}
+
+	/**
+	 * Finds the shortest path to a rare LEVEL_3 value.
+	 */
+	@Benchmark
+	public long targetSolverShortestPath()
+	{
+		return TargetSolver.shortestPath(root, rare,
+				Difficulty.LEVEL_3.depth() - 1);
+	}
+
+	/**
+	 * Ranks the values reachable at LEVEL_5 by frequency.
+	 */
+	@Benchmark
+	public int[] valueHistogramRankedValues()
+	{
+		return histogram.rankedValues();
+	}
+
+	@Benchmark
+	public int treeBreadthFirstSearchDepth5()
+	{
+		return tree.BreadthFirstSearch(5, tree).size();
+	}
+
+	/**
+	 * Finds a GameState a few moves into the game, ending on an operator, so
+	 * that it has a typical number of moves.
+	 *
+	 * @param root - GameState with nothing on the path.
+	 * @return - The GameState.
+	 */
+	private static GameState middleGameState(GameState root)
+	{
+		Node<GameState> node = new GameTree(root, 4).getRoot();
+		for(int level = 1; level < 4 && !node.getChildren().isEmpty(); level++)
+			node = node.getChildren().get(node.getChildren().size() / 2);
+		return node.getValue();
+	}
+}
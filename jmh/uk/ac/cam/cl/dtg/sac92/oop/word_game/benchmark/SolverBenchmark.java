@@ -0,0 +1,106 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.Difficulty;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.GameState;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.PackedPath;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.TargetSolver;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.ValueEnumerator;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.ValueHistogram;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Grid;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.TileCollection;
+
+/**
+ * Measures TargetSolver on fixed-seed boards at each Difficulty. For every
+ * board it solves for a rare value, picked as DifficultyGenerator would, and
+ * for the smallest positive value that cannot be made, which has to search
+ * every length. Each call solves on the next of the boards in turn. The
+ * paths are replayed once in setUp to check them.
+ *
+ *     java -jar target/benchmarks.jar SolverBenchmark -prof gc
+ *
+ * @author Navid
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SolverBenchmark {
+
+	private static final int WIDTH = 8;
+	private static final int HEIGHT = 8;
+	private static final int BOARDS = 16;
+	private static final long FIRST_SEED = 1L;
+
+	@Param({"LEVEL_1", "LEVEL_2", "LEVEL_3", "LEVEL_4", "LEVEL_5", "LEVEL_6"})
+	public Difficulty difficulty;
+
+	private final GameState[] roots = new GameState[BOARDS];
+	private final int[] rare = new int[BOARDS];
+	private final int[] absent = new int[BOARDS];
+	private int maxMoves;
+	private int next = 0;
+
+	@Setup
+	public void setUp()
+	{
+		maxMoves = difficulty.depth() - 1;
+		for(int b = 0; b < BOARDS; b++)
+		{
+			GameState gs = new GameState(new Grid(WIDTH, HEIGHT,
+					new TileCollection(FIRST_SEED + b)));
+			ValueHistogram histogram = ValueEnumerator.parallelHistogram(gs,
+					difficulty.depth());
+			roots[b] = gs;
+			rare[b] = histogram.valueAtRarity(difficulty.fraction());
+			absent[b] = 1;
+			while(histogram.count(absent[b]) > 0)
+				absent[b]++;
+
+			long path = TargetSolver.shortestPath(gs, rare[b], maxMoves);
+			if(PackedPath.replay(gs, path).getAccumulator() != rare[b]) {
+				throw new IllegalStateException("Path " +
+						PackedPath.toString(path) + " does not make " + rare[b]);
+			}
+			if(TargetSolver.shortestPath(gs, absent[b], maxMoves) !=
+					PackedPath.NONE)
+				throw new IllegalStateException("Found a path to " + absent[b]);
+		}
+	}
+
+	/**
+	 * Finds the shortest path to a rare value.
+	 */
+	@Benchmark
+	public long shortestPathFound()
+	{
+		int b = next++ % BOARDS;
+		return TargetSolver.shortestPath(roots[b], rare[b], maxMoves);
+	}
+
+	/**
+	 * Fails to find a path to a value that cannot be made.
+	 */
+	@Benchmark
+	public long shortestPathMissing()
+	{
+		int b = next++ % BOARDS;
+		return TargetSolver.shortestPath(roots[b], absent[b], maxMoves);
+	}
+}
@@ -0,0 +1,157 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.benchmark;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GridLayout;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Grid;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.GridGUI;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Tile;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.TileCollection;
+
+/**
+ * Measures recolouring every tile of a board, as a click that changes the
+ * whole path does, and painting the board to an image. It compares the
+ * board's TileGUIs with buttons showing HTML text, as TileGUI used to, on
+ * the game's board and on a much larger one. The forks run headless.
+ *
+ *     java -jar target/benchmarks.jar TilePaintBenchmark -prof gc
+ *
+ * @author Navid
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TilePaintBenchmark {
+
+	@Param({"8", "32"})
+	public int side;
+
+	@Param({"TILE_GUI", "HTML"})
+	public String renderer;
+
+	private JPanel board;
+	private BufferedImage image;
+	private int frame = 0;
+
+	@Setup
+	public void setUp()
+	{
+		board = renderer.equals("HTML") ? htmlBoard(side) : tileBoard(side);
+		board.setSize(board.getPreferredSize());
+		board.doLayout();
+		image = new BufferedImage(board.getWidth(), board.getHeight(),
+				BufferedImage.TYPE_INT_RGB);
+	}
+
+	@Benchmark
+	public int recolourAndPaint()
+	{
+		frame++;
+		Color foreground = (frame & 1) == 0 ? Color.yellow : Color.green;
+		Color background = (frame & 1) == 0 ? Color.blue : Color.red;
+		for(int i = 0; i < board.getComponentCount(); i++)
+		{
+			JComponent tile = (JComponent)board.getComponent(i);
+			tile.setForeground(foreground);
+			tile.setBackground(background);
+		}
+
+		Graphics2D g = image.createGraphics();
+		board.paint(g);
+		g.dispose();
+		return image.getRGB(frame % image.getWidth(), 0);
+	}
+
+	/**
+	 * Makes a board of TileGUIs.
+	 *
+	 * @param side - Width and height of the board.
+	 * @return - The board.
+	 */
+	private static JPanel tileBoard(int side)
+	{
+		return new GridGUI(new Grid(side, side,
+				new TileCollection(boardTiles(side))));
+	}
+
+	/**
+	 * Makes a board of buttons showing HTML text, as TileGUI used to.
+	 *
+	 * @param side - Width and height of the board.
+	 * @return - The board.
+	 */
+	private static JPanel htmlBoard(int side)
+	{
+		JPanel board = new JPanel(new GridLayout(side, side));
+		for(Tile tile : boardTiles(side))
+			board.add(new HtmlTile(tile));
+		return board;
+	}
+
+	/**
+	 * Makes tiles for a board of any size, repeating the digits and
+	 * operators.
+	 *
+	 * @param side - Width and height of the board.
+	 * @return - The tiles.
+	 */
+	private static Tile[] boardTiles(int side)
+	{
+		String letters = "0123456789+-*%";
+		Tile[] tiles = new Tile[side * side];
+		for(int i = 0; i < tiles.length; i++)
+			tiles[i] = new Tile(letters.charAt(i % letters.length()));
+		return tiles;
+	}
+
+	/**
+	 * A button showing its tile's letter as HTML text, set again whenever
+	 * its foreground colour changes, as TileGUI used to.
+	 */
+	private static class HtmlTile extends JButton {
+
+		private static final long serialVersionUID = 1L;
+		private final Tile tile;
+
+		HtmlTile(Tile tile)
+		{
+			this.tile = tile;
+			setForeground(getForeground());
+			setContentAreaFilled(true);
+		}
+
+		@Override
+		public void setForeground(Color colour)
+		{
+			super.setForeground(colour);
+			if(tile != null) {
+				setText(String.format("<html><font color=\"#%02x%02x%02x\" " +
+						"size=\"+5\">%c", colour.getRed(), colour.getGreen(),
+						colour.getBlue(), tile.letter()));
+			}
+		}
+	}
+}
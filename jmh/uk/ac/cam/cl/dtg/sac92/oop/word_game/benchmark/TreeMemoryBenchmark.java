@@ -0,0 +1,133 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.Difficulty;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.GameState;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.GameTree;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.ValueHistogram;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.ValueVisitor;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Grid;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.TileCollection;
+
+/**
+ * Compares the peak heap used by eager and lazy GameTrees at each
+ * Difficulty. Both trees are walked with visitValues on the same fixed-seed
+ * board, the eager tree is built in full first while the lazy tree releases
+ * each subtree once it has been visited.
+ *
+ * The peak is the most live heap seen above what was in use before the
+ * walk, reported as the peakKilobytes counter. The heap is sampled after a
+ * full collection once the tree is built and then every SAMPLE_INTERVAL
+ * nodes of the walk, so garbage is not counted. The collections make the
+ * time meaningless, so each iteration is a single walk and only the counter
+ * should be read. JMH adds the counter up over the iterations measured, so
+ * only one is:
+ *
+ *     java -jar target/benchmarks.jar TreeMemoryBenchmark
+ *
+ * @author Navid
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(1)
+public class TreeMemoryBenchmark {
+
+	private static final int WIDTH = 8;
+	private static final int HEIGHT = 8;
+	private static final long SEED = 1L;
+	// Number of nodes visited between samples of the heap.
+	private static final int SAMPLE_INTERVAL = 20000;
+
+	private static final MemoryMXBean memory =
+			ManagementFactory.getMemoryMXBean();
+
+	@Param({"LEVEL_1", "LEVEL_2", "LEVEL_3", "LEVEL_4", "LEVEL_5", "LEVEL_6"})
+	public Difficulty difficulty;
+
+	@Param({"false", "true"})
+	public boolean lazy;
+
+	private GameState root;
+
+	/**
+	 * The peak heap of the last walk.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Peak {
+
+		public long peakKilobytes;
+
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			peakKilobytes = 0;
+		}
+	}
+
+	@Setup
+	public void setUp()
+	{
+		root = new GameState(new Grid(WIDTH, HEIGHT,
+				new TileCollection(SEED)));
+	}
+
+	@Benchmark
+	public long visitValues(Peak peak)
+	{
+		final long before = liveHeap();
+		final ValueHistogram histogram = new ValueHistogram();
+		final long[] most = {0};
+
+		GameTree tree = new GameTree(root, difficulty.depth(), lazy);
+		most[0] = liveHeap() - before;
+
+		tree.visitValues(new ValueVisitor() {
+			@Override
+			public void visit(int value, int depth)
+			{
+				histogram.visit(value, depth);
+				if(histogram.total() % SAMPLE_INTERVAL == 0)
+					most[0] = Math.max(most[0], liveHeap() - before);
+			}
+		});
+
+		most[0] = Math.max(most[0], liveHeap() - before);
+
+		// Keep the tree reachable until the last sample has been taken.
+		tree.getRoot();
+		peak.peakKilobytes = Math.max(0, most[0]) / 1024;
+		return histogram.total();
+	}
+
+	/**
+	 * Gets the heap in use after a full collection.
+	 * @return - The bytes in use.
+	 */
+	private static long liveHeap()
+	{
+		System.gc();
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
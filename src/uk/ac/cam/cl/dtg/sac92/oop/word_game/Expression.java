@@ -0,0 +1,182 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game;
+
+/**
+ * The expression made by a path of tiles, along with its value, in the form
+ * shown to the player, e.g. "((1+2)*3-4)%5". Applying * or % to anything
+ * but the first number brackets everything before it.
+ *
+ * An expression is immutable: adding a tile gives a new expression and the
+ * old one still describes the shorter path, so going back to a prefix of
+ * the path is just a matter of keeping the old expression. Rather than
+ * adding a bracket to the front, which would copy the whole text, only a
+ * count of the leading brackets is kept and the text after them, the body,
+ * is only ever appended to. The text is put together when it is first
+ * asked for, so adding a tile takes constant time however long the path.
+ *
+ * The expressions made by adding to one another share the body's buffer.
+ * Only the expression at the end of the buffer appends in place, any other
+ * copies its body to a new buffer first, so the characters an expression
+ * uses are never changed once written.
+ *
+ * @author Navid
+ *
+ */
+public final class Expression {
+
+	// The expression of an empty path.
+	public static final Expression EMPTY = new Expression(new Buffer(), 0, 0,
+			0, 0);
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final Buffer buffer;
+	// Characters of the body, in the buffer.
+	private final int length;
+	private final int brackets;
+	private final int tiles;
+	private final int value;
+	// The text, put together when first asked for.
+	private String text;
+
+	private Expression(Buffer buffer, int length, int brackets, int tiles,
+			int value)
+	{
+		this.buffer = buffer;
+		this.length = length;
+		this.brackets = brackets;
+		this.tiles = tiles;
+		this.value = value;
+	}
+
+	/**
+	 * Adds a tile to the end of the path. The path is assumed to be valid,
+	 * i.e. to start with a number and alternate numbers and operators.
+	 *
+	 * @param letter - The letter on the tile.
+	 * @return - The expression of the longer path.
+	 */
+	public Expression append(char letter)
+	{
+		if(!isOperator(letter)) {
+			int digit = letter - '0';
+			int newValue = tiles == 0 ? digit
+					: apply(value, lastOperator(), digit);
+			return extend(newValue, brackets, letter);
+		}
+
+		// Special cases when applying * or % to first value as there is no
+		// ambiguity and so we omit the brackets.
+		if((letter == '*' || letter == '%') && tiles > 1)
+			return extend(value, brackets + 1, ')', letter);
+
+		return extend(value, brackets, letter);
+	}
+
+	/**
+	 * Gets the value of the expression.
+	 * @return - The value, 0 for an empty path.
+	 */
+	public int value() {return value;}
+
+	/**
+	 * Gets the number of tiles in the path.
+	 * @return - The number of tiles.
+	 */
+	public int tiles() {return tiles;}
+
+	/**
+	 * Gets the number of characters in the text, without putting it
+	 * together.
+	 * @return - The length of the text.
+	 */
+	public int length() {return brackets + length;}
+
+	/**
+	 * Gets the text of the expression, put together the first time it is
+	 * asked for.
+	 */
+	@Override
+	public String toString()
+	{
+		String s = text;
+		if(s == null) {
+			char[] chars = new char[brackets + length];
+			for(int i = 0; i < brackets; i++)
+				chars[i] = '(';
+			System.arraycopy(buffer.chars, 0, chars, brackets, length);
+			// Racing threads would each put together the same text.
+			text = s = new String(chars);
+		}
+		return s;
+	}
+
+	/**
+	 * Makes the expression with characters added to the body.
+	 */
+	private Expression extend(int newValue, int newBrackets, char... added)
+	{
+		Buffer b = buffer;
+
+		synchronized(b) {
+			// Claim the end of the buffer if this expression is at it.
+			if(b.used == length && length + added.length <= b.chars.length) {
+				System.arraycopy(added, 0, b.chars, length, added.length);
+				b.used += added.length;
+				return new Expression(b, length + added.length, newBrackets,
+						tiles + 1, newValue);
+			}
+		}
+
+		// Otherwise copy the body to a buffer of its own, doubling its size
+		// so that appends stay constant time on average.
+		b = new Buffer();
+		b.chars = new char[Math.max(INITIAL_CAPACITY,
+				2 * (length + added.length))];
+		System.arraycopy(buffer.chars, 0, b.chars, 0, length);
+		System.arraycopy(added, 0, b.chars, length, added.length);
+		b.used = length + added.length;
+		return new Expression(b, b.used, newBrackets, tiles + 1, newValue);
+	}
+
+	/**
+	 * Gets the operator at the end of the body, which is waiting for a
+	 * number.
+	 */
+	private char lastOperator()
+	{
+		return buffer.chars[length - 1];
+	}
+
+	private static boolean isOperator(char c)
+	{
+		return c == '*' || c == '+' || c == '%' || c == '-';
+	}
+
+	/**
+	 * Applies an operator to a value and a number.
+	 */
+	private static int apply(int value, char operator, int number)
+	{
+		switch(operator)
+		{
+		case '*':
+			return value * number;
+		case '+':
+			return value + number;
+		case '%':
+			// Catching mod 0 to avoid ArithmeticException.
+			return number == 0 ? 0 : value % number;
+		case '-':
+			return value - number;
+		}
+		return value;
+	}
+
+	/**
+	 * The characters shared by expressions, and how many are in use.
+	 */
+	private static class Buffer {
+		char[] chars = new char[0];
+		int used = 0;
+	}
+}
@@ -3,29 +3,28 @@ package uk.ac.cam.cl.dtg.sac92.oop.word_game;
 import java.awt.Color;
 import java.awt.event.ActionListener;
 import java.awt.event.ActionEvent;
-import java.awt.event.WindowEvent;
 
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JButton;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 
 import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.Difficulty;
 import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.DifficultyGenerator;
-import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.GameState;
-import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Grid;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.EngineMetrics;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.GenerationListener;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.SearchBudget;
 import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.GridGUI;
 import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Tile;
-import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.TileCollection;
 
 import java.awt.GridLayout;
-import java.awt.Point;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Random;
+import java.util.concurrent.Future;
 
 /**
  * This represents a number game. It approximates a singleton pattern.
@@ -36,22 +35,29 @@ import java.util.Random;
  * create a required value. The difficulty level determines the rarity of the
  * required value. 
  * 
- * A significant (internal) part of the program is the generation of GameTrees 
+ * A significant (internal) part of the program is the search of GameTrees 
  * which are trees that contain the game at a particular moment (represented as
  * a GameState) as nodes and the children of each node are all the potential 
  * GameStates available by making a move at the node. This is used to determine
- * which values are reachable (within a depth limit) and breadth first search 
- * is used to find the reachable values. 
+ * which values are reachable (within a depth limit), the tree is walked depth
+ * first to count how often each value is reached without storing it. This
+ * search runs in the background so the window stays responsive, while it
+ * runs the required value shows its progress and the submit button is
+ * disabled. Shuffling or changing difficulty cancels it. The search is given
+ * a time budget, if it runs out the value comes from the deepest level
+ * searched so every difficulty gets a required value promptly.
  * 
  * Graphically we have a region that displays the current game info i.e. the 
  * current value, required value, current expression, score. In addition we 
- * have three self explanatory buttons: SubmitCurrentValue, ShuffleGrid and
- * ClearExpression. On the grid we have inactive tiles represented by blue and
+ * have self explanatory buttons: SubmitCurrentValue, ShuffleGrid,
+ * ClearExpression, Undo, Redo and Difficulty. On the grid we have inactive tiles represented by blue and
  * active tiles by differing shades of red with the more recently clicked tiles
  * being a brighter shade of red to help the player with the order of their 
  * path. If the player clicks an active tile on the path it deactivates and 
  * also deactivates all the tiles added after it (and recomputes the value).
  * 
+ * The rules and state of the game are held by a GameEngine, this class only
+ * passes the player's actions to it and redraws what each action changed.
  * 
  * @author Stephen Cummins & Navid
  * @version 1.0 Released 11/10/2005
@@ -74,20 +80,23 @@ public class Game extends JPanel {
 	private static JLabel currentValueLabel;
 	private static JLabel currentExpressionLabel;
 	
-	// Game variables.
-	private static Grid grid;
-	private static ArrayList<Tile> path = new ArrayList<Tile>();
-	private static TileCollection collection;
-	private static int score = 0;
-	private static int value = 0;
-	private static int requiredValue;
-	private static String expression = ""; 
-	private static Difficulty difficulty;
+	private static JButton submitButton;
+	private static JButton undoButton;
+	private static JButton redoButton;
+	
+	// The game itself, the rest of this class only displays it.
+	private static GameEngine engine;
+	
+	// The required value being generated in the background, if any, and a
+	// count of the requests made so that results of old ones are ignored.
+	private static Future<Integer> pendingRequiredValue;
+	private static int requestCount = 0;
 	
 	// Constants.
 	private static final int X_TILE_COUNT = 8;
 	private static final int Y_TILE_COUNT = 8;
-	private static final int SCORE_CONST = 1000;
+	// Longest the player waits for a required value, in milliseconds.
+	private static final long GENERATION_MILLIS = 2000;
 	
 
 	/**
@@ -101,8 +110,14 @@ public class Game extends JPanel {
 	 */
 	public static void startGame()
 	{
-		if(frame == null)
-			buildGUI(false);
+		// Lets the time taken to generate required values be watched.
+		EngineMetrics.register();
+		
+		if(frame == null) {
+			engine = new GameEngine(X_TILE_COUNT, Y_TILE_COUNT,
+					Difficulty.LEVEL_1);
+			buildGUI();
+		}
 		frame.toFront();
 	}
 	
@@ -137,28 +152,21 @@ public class Game extends JPanel {
 		index = choices.indexOf(response);
 		
 		// Adjust the game to the newly chosen difficulty.
-		difficulty = Difficulty.numToDif(index);
-		
-		requiredValue = generateNextRequiredValue();
+		engine.setDifficulty(Difficulty.numToDif(index));
 		
-		requiredValueLabel.setText("Required value: " + requiredValue);
+		generateNextRequiredValue();
 	}
 	
 
 	/**
-	 * This method will construct each element of the game's GUI
-	 * @param collectionSupplied - Specifies if we need to make new collection.
+	 * This method will construct each element of the game's GUI for the
+	 * engine's current grid.
 	 */
-	private static void buildGUI(boolean collectionSupplied) {
+	private static void buildGUI() {
 		
 		// Instantiate swing components. 
 		frame = new JFrame("Java Word Game");
-		if(!collectionSupplied) {
-			collection = new TileCollection();
-		}
-		
-		grid = new Grid(X_TILE_COUNT, Y_TILE_COUNT, collection);
-		gui = new GridGUI(grid);
+		gui = new GridGUI(engine.grid());
 		
 		gui.setTileForeground(Color.yellow);
 		gui.setTileBackground(Color.blue);
@@ -171,17 +179,22 @@ public class Game extends JPanel {
 		gameInfo.setLayout(new GridLayout(3,1, 10, 10));
 		
 		controls = new JPanel();
-		controls.setLayout(new GridLayout(1,3, 10, 10));
+		controls.setLayout(new GridLayout(1,6, 10, 10));
 				
 		controls.setBorder(new EmptyBorder(10,10,10,10));
 		
 
-		JButton submitButton = new JButton("Submit Current Value");
+		submitButton = new JButton("Submit Current Value");
 		JButton shuffleButton = new JButton("Shuffle Grid");
 		JButton clearButton = new JButton("Clear expression");
+		undoButton = new JButton("Undo");
+		redoButton = new JButton("Redo");
+		JButton difficultyButton = new JButton("Difficulty");
+		undoButton.setEnabled(engine.canUndo());
+		redoButton.setEnabled(engine.canRedo());
 
 		// Setting initial label values/alignment.
-		scoreLabel = new JLabel("Your score is: " + score);
+		scoreLabel = new JLabel("Your score is: " + engine.score());
 		scoreLabel.setHorizontalAlignment(JLabel.CENTER);
 		
 		requiredValueLabel = new JLabel("You need to make: ");
@@ -201,6 +214,9 @@ public class Game extends JPanel {
 		controls.add(submitButton);
 		controls.add(shuffleButton);
 		controls.add(clearButton);
+		controls.add(undoButton);
+		controls.add(redoButton);
+		controls.add(difficultyButton);
 		controls.setVisible(true);
 		
 		// Adding ActionListeners. 
@@ -229,6 +245,24 @@ public class Game extends JPanel {
 			}
 		});
 		
+		undoButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent actionEvent) {
+				render(engine.undo());
+			}
+		});
+		
+		redoButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent actionEvent) {
+				render(engine.redo());
+			}
+		});
+		
+		difficultyButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent actionEvent) {
+				changeDifficulty();
+			}
+		});
+		
 		frame.setTitle("Java Number Game");
 		
 		// Sets layout of the game as a 1*2 grid.
@@ -256,463 +290,211 @@ public class Game extends JPanel {
 	}
 	
 	/**
-	 * Processes player clicks on the board. If an active (previously clicked)
-	 * tile is clicked again then it removes it from the path and removes all
-	 * the tiles following it in the path. It also recomputes the game info for
-	 * this reduced path. If an inactive tile is clicked then it adds it to the
-	 * end of the path and recomputes the game info.
+	 * Processes player clicks on the board by passing them to the engine,
+	 * which adds the tile to the path or, if it is already on the path,
+	 * removes it and the tiles following it.
 	 * 
 	 * @param source - Tile clicked.
 	 */
 	private static void tileClick(Tile source)
 	{
-		// Catch the case where the player has not picked any tiles yet and
-		// tries to pick an operator.
-		if((path.size() == 0) && source.isOperator()) {
-			JOptionPane.showMessageDialog(frame, "You cannot start an " +
-					"expression with an operator.", "Try again!", 
-					JOptionPane.ERROR_MESSAGE);
-			return;
-		}
+		GameDelta delta = engine.click(engine.grid().cellOf(source));
 		
-		if(source.checkActive()) {
-			// We have to remove the tile from the path and also any tiles that
-			// were added after it, then we have to recompute value and the 
-			// current expression. 
-			boolean found = false;
-			int indexToRemoveFrom = -1;
-			int pathLength = path.size();
-			
-			// Find tile in path, using reference equality comparison. 
-			for(int i = 0; i <= pathLength; i++)
-			{
-				if(!found) {
-					if(path.get(i) == source) {
-						found = true;
-						indexToRemoveFrom = i;
-					}
-				} else {
-					Tile deselected = path.get(indexToRemoveFrom);
-					
-					// De-select tiles.
-					gui.setTileBackground(grid.positionOf(deselected),
-							Color.blue);
-					gui.setTileForeground(grid.positionOf(deselected),
-							Color.yellow);
-					
-					deselected.active(false);
-					
-					// .remove shifts elements to the left so we can keep
-					// deleting from the same index. 
-					path.remove(indexToRemoveFrom);
-				}
-			}
-			
-			// Update game info.
-			expression = pathToExpression(path);
-			value = expressionToValue(expression);
-			currentValueLabel.setText("Current value: " + value);
-			
-			// Re draw tiles. 
-			gui.invalidate();
-			
-		} else {
-			if(path.size() != 0) {
-				// Get last tile in expression.
-				Tile previous = path.get(path.size()-1);
-				// If they are adjacent and not both numbers/operators. 
-				if(!Grid.isNeighbour(source, previous,grid)) {
-					// Player has picked non-adjacent tiles.
-					JOptionPane.showMessageDialog(frame,
-							"Your tiles must be adjacent.",
-							"Try again!", JOptionPane.ERROR_MESSAGE);
-				} else {
-					if(!(source.isOperator() != previous.isOperator())) {
-						// Player has not created a valid expression.
-						JOptionPane.showMessageDialog(frame,
-								"There cannot be two of these in a row.",
-								"Try again!", JOptionPane.ERROR_MESSAGE);
-					} else {
-						// Player has made a valid tile choice.
-						
-						// Select tile.
-						gui.setTileBackground(grid.positionOf(source),
-								Color.red);
-						gui.setTileForeground(grid.positionOf(source),
-								Color.green);
-						source.active(true);
-					
-						// Update game info.
-						updateCurrentValue(source.letter());
-						path.add(source);
-					}
-				}
-			} else {
-				// Special initial cases for value and expression.
-				
-				// Update game info.
-				value = Integer.parseInt(String.valueOf(source.letter()));
-				currentValueLabel.setText("Current value: " + value);
-				expression = String.valueOf(source.letter());
-				path.add(source);
-				
-				// Select tile.
-				gui.setTileBackground(grid.positionOf(source), Color.red);
-				gui.setTileForeground(grid.positionOf(source), Color.green);
-				source.active(true);
-				
-			}
+		if(!delta.isAccepted()) {
+			JOptionPane.showMessageDialog(frame, delta.rejection(),
+					"Try again!", JOptionPane.ERROR_MESSAGE);
+			return;
 		}
 		
-		// Update graphical output. 
-		colourPath();
-		currentExpressionLabel.setText("Current expression: " + expression);
-		frame.repaint();
+		render(delta);
 	}
 	
 	/**
-	 * Handles clicks on the submit button. It updates the player's score if
-	 * their currentValue == requiredValue and resets the game, otherwise
-	 * it displays a dialog informing the user their value is not right.
+	 * Handles clicks on the submit button. The engine updates the player's
+	 * score if their value is the required value and resets the path,
+	 * otherwise a dialog tells the player their value is not right.
 	 */
 	private static void submitValue()
 	{
+		GameDelta delta = engine.submit();
 		
-		if(value != requiredValue) {
-			// If the user has not submitted a correct value.
-			JOptionPane.showMessageDialog(frame, "Not quite right :(",
+		if(!delta.isAccepted()) {
+			JOptionPane.showMessageDialog(frame, delta.rejection(),
 					"Keep trying.", JOptionPane.PLAIN_MESSAGE);
-		} else {
-			// Calculate the score of the user's input path.
-			int length = path.size();
-			score += difficulty.multiplier() * SCORE_CONST / (1 + length/2);
-			
-			scoreLabel.setText("Your score is: " + score);
-			
-			// Update the game info.
-			value = 0;
-			currentValueLabel.setText("Current value: 0");
-		
-			requiredValue = generateNextRequiredValue();
-			requiredValueLabel.setText("Required value: " + requiredValue);
-			
-			currentExpressionLabel.setText("Current expression: ");
-			expression = "";
-			
-			// Deactivate tiles on the path.
-			for(Tile t : path) 
-			{
-				t.active(false);
-				gui.setTileBackground(grid.positionOf(t), Color.blue);
-				gui.setTileForeground(grid.positionOf(t), Color.yellow);
-			}
-			
-			path.clear();
-		    frame.repaint();
+			return;
 		}
-
-	}
-	
-	/**
-	 * Generates the required value using the DifficultyGenerator class.
-	 * @return
-	 */
-	private static int generateNextRequiredValue()
-	{
-		DifficultyGenerator.generateRequiredNumber(difficulty,
-				new GameState(grid, path));
 		
-		return DifficultyGenerator.getRequiredNumber();
+		render(delta);
 	}
 	
 	/**
-	 * Handles clicks on the Shuffle Tiles button.
-	 * Shuffles the tiles on the current board and resets the all the game info
-	 * except for score. It calls buildGUI which causes the frame to 
-	 * disappear momentarily. Note the tiles are passed implicitly to the new
-	 * game GUI by collection.
+	 * Updates the window to show the changes made by an action.
+	 * 
+	 * @param delta - What the action changed.
 	 */
-	private static void shuffleTiles()
+	private static void render(GameDelta delta)
 	{
-		int length = Y_TILE_COUNT*X_TILE_COUNT;
-		Tile[] shuffledTiles = new Tile[length];
-		
-		Random random = new Random();
-		int swapIndex = 0;
-		Tile temp;
-		
-		// Populate tiles from grid.
-		for(int x = 0; x < X_TILE_COUNT; x++)
+		// The tiles have been moved around the grid, the components showing
+		// them stay and are given their new tiles.
+		if(delta.isBoardChanged())
+			gui.rebind();
+		
+		// Deselect the tiles taken off the path and select those added. The
+		// colours are applied together, so only tiles whose colours end up
+		// different are repainted.
+		gui.beginUpdate();
+		for(int cell : delta.removed())
 		{
-			for(int y = 0; y < Y_TILE_COUNT; y++)
-			{
-				shuffledTiles[x+Y_TILE_COUNT*y] = grid.tileAt(new Point(x,y));
-			}
+			gui.setTileBackground(cell, Color.blue);
+			gui.setTileForeground(cell, Color.yellow);
 		}
-		
-		// Fisher-Yates shuffle.
-		for(int i = length - 1; i > 0; i--)
+		for(int cell : delta.added())
 		{
-			swapIndex = random.nextInt(i+1);
-			temp = shuffledTiles[i];
-			shuffledTiles[i] = shuffledTiles[swapIndex];
-			shuffledTiles[swapIndex] = temp;
+			gui.setTileBackground(cell, Color.red);
+			gui.setTileForeground(cell, Color.green);
 		}
+		colourPath();
+		gui.endUpdate();
+		undoButton.setEnabled(engine.canUndo());
+		redoButton.setEnabled(engine.canRedo());
 		
-		// Deactivate all the tiles.
-		for(Tile t : shuffledTiles)
-			t.active(false);
-		
-		// Reset game info.
-		value = 0;
-		expression = "";
-		requiredValue = 0;
-		path.clear();
-		
-		// Assign the shuffled grid to collection and start the game again.
-		collection = new TileCollection(shuffledTiles);
-		frame.dispatchEvent(new WindowEvent(frame,
-				WindowEvent.WINDOW_CLOSING));
-		buildGUI(true);
+		scoreLabel.setText("Your score is: " + delta.score());
+		currentValueLabel.setText("Current value: " + delta.value());
+		currentExpressionLabel.setText("Current expression: " +
+				delta.expression());
+		
+		if(delta.isRequiredValueStale())
+			generateNextRequiredValue();
 	}
 	
 	/**
-	 * Handles clicks on the Clear Expression button. 
-	 * Clears the current expression and resets game info and UI.
+	 * Starts generating the required value in the background using the
+	 * DifficultyGenerator class, cancelling any previous request. Until it is
+	 * generated the required value label shows the progress and the submit
+	 * button is disabled.
 	 */
-	private static void clearExpression()
+	private static void generateNextRequiredValue()
 	{
-	
-		// Deactivate tiles on the path.
-		for(Tile t : path) 
-		{
-			gui.setTileBackground(grid.positionOf(t), Color.blue);
-			gui.setTileBackground(grid.positionOf(t), Color.yellow);
-			t.active(false);
-		}
-		
-		// Reset game info and UI.
-		path.clear();
-		value = 0;
-		currentValueLabel.setText("Current value: 0");
-		expression = "";
-		currentExpressionLabel.setText("Current expression: ");
+		cancelRequiredValue();
+		
+		final int request = ++requestCount;
+		submitButton.setEnabled(false);
+		requiredValueLabel.setText("Computing required value...");
+		
+		// The listener is called from the background thread, so each update
+		// is passed to the EDT and dropped if a newer request has been made.
+		pendingRequiredValue = DifficultyGenerator.generateRequiredNumberAsync(
+				engine.difficulty(), engine.rootState(),
+				SearchBudget.millis(GENERATION_MILLIS), new GenerationListener() {
+			@Override
+			public void progress(final long nodes, final int depth)
+			{
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if(request == requestCount) {
+							requiredValueLabel.setText("Computing required " +
+									"value... (" + nodes + " paths, depth " +
+									depth + ")");
+						}
+					}
+				});
+			}
+			
+			@Override
+			public void generated(final int requiredNumber)
+			{
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if(request == requestCount) {
+							pendingRequiredValue = null;
+							engine.setRequiredValue(requiredNumber);
+							requiredValueLabel.setText("Required value: " +
+									requiredNumber);
+							submitButton.setEnabled(true);
+						}
+					}
+				});
+			}
+			
+			@Override
+			public void failed(final Throwable cause)
+			{
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if(request == requestCount) {
+							pendingRequiredValue = null;
+							requiredValueLabel.setText("Required value: ?");
+							JOptionPane.showMessageDialog(frame,
+									"Could not generate a required value: " +
+									cause, "Error", JOptionPane.ERROR_MESSAGE);
+						}
+					}
+				});
+			}
+		});
 	}
 	
-	
 	/**
-	 * Colours the path, with the newest one being reddest. This allows the
-	 * user to see the order in which they clicked the tiles. 
+	 * Cancels the required value being generated, if there is one.
 	 */
-	private static void colourPath()
+	private static void cancelRequiredValue()
 	{
-		int length = path.size();
-		
-		// Colour each tile based on it's position in path.
-		for(int i = 0; i < length; i++) 
-		{
-			gui.setTileBackground(grid.positionOf(path.get(i)),
-					new Color((float)i/length, 0.0f, 0.0f));
+		if(pendingRequiredValue != null) {
+			pendingRequiredValue.cancel(false);
+			pendingRequiredValue = null;
 		}
-		
-		frame.repaint();
 	}
 	
-	
 	/**
-	 * Updates value according to the letter on the newly picked tile.
-	 * 
-	 * @param c - The letter on the newly picked tile.
+	 * Handles clicks on the Shuffle Tiles button.
+	 * The engine shuffles the tiles on the current board and resets the path,
+	 * keeping the score. The board shows the moved tiles in place and a
+	 * required value is generated for it at the same difficulty.
 	 */
-	private static void updateCurrentValue(char c) 
+	private static void shuffleTiles()
 	{
-		boolean isOperator = true;
-		// If c is not an operator. 
-		if (!((c=='*') || (c=='+') ||(c=='%') || (c=='-'))) {
-			isOperator = false;
-			// Get the value of the last thing in the path.
-			char previousOperator = path.get(path.size()-1).letter();
-			// Convert c into an integer.
-			int currentNumber = Integer.parseInt(String.valueOf(c));
-			
-			switch(previousOperator) {
-			case '*':
-				value *= currentNumber;
-				break;
-			case '+':
-				value += currentNumber;
-				break;
-			case '%':
-				// Catching the mod 0 to avoid ArithmeticException.
-				if(currentNumber == 0)
-				{
-					value = 0;
-				} else {
-					value %= currentNumber;
-				}
-				break;
-			case '-':
-				value -= currentNumber;
-				break;
-			}
-		}
-		
-		currentValueLabel.setText("Current value: " + value);
-		
-		updateExpressionLabel(c, isOperator);
+		// The required value is for the old board, so stop searching for it.
+		cancelRequiredValue();
+		render(engine.shuffle());
 	}
 	
 	/**
-	 * Updates the expression and expression label after the user adds a tile.
-	 * 
-	 * @param c
-	 * @param isOperator
+	 * Handles clicks on the Difficulty button.
+	 * Asks the player for a new difficulty and generates a required value
+	 * for the board at it, the path and score are kept.
 	 */
-	private static void updateExpressionLabel(char c, boolean isOperator)
+	private static void changeDifficulty()
 	{
-		// First update the expression, then the expression label. 
-		if(isOperator) {
-			// Special cases when applying * or % to first value as there is
-			// no ambiguity and so we omit the brackets. 
-			switch(c) {
-			case '*':
-				if(expression.length() == 1) {
-					expression = expression + "*";
-				} else {
-					expression = "(" + expression + ")*";
-				}
-				break;
-			case '+':
-				expression = expression + "+";
-				break;
-			case '%':
-				if(expression.length() == 1) {
-					expression = expression + "%";
-				} else {
-					expression = "(" + expression + ")%";
-				}
-				break;
-			case '-':
-				expression = expression + "-";
-				break;
-			}
-		} else {
-			expression = expression + String.valueOf(c);
-		}
-		
-		currentExpressionLabel.setText("Current expression: " + expression);
+		// The required value is for the old difficulty, so stop searching
+		// for it.
+		cancelRequiredValue();
+		getDifficultyChoice();
 	}
 	
 	/**
-	 * Turns an ArrayList of tiles into an expression.
-	 * @param tilePath - The tiles to convert. 
-	 * @return - The expression.
+	 * Handles clicks on the Clear Expression button. 
+	 * Clears the current expression and resets game info and UI.
 	 */
-	private static String pathToExpression(ArrayList<Tile> tilePath)
+	private static void clearExpression()
 	{
-		int length = tilePath.size();
-		if(length == 0)
-			return "";
-		StringBuilder expressionBuilder = new StringBuilder();
-		char currentChar = 0;
-		
-		for(int i = 0; i < length; i++) 
-		{
-			currentChar = tilePath.get(i).letter();
-			switch(currentChar)
-			{
-			case '*':
-			case '%':
-				if(expressionBuilder.length() == 1) {
-					expressionBuilder.append(currentChar);
-				} else {
-					expressionBuilder.insert(0, '(');
-					expressionBuilder.append(')');
-					expressionBuilder.append(currentChar);
-				}
-				break;
-			case '+':
-			case '-':
-				expressionBuilder.append(currentChar);
-				break;
-			default:
-				// If a number is found.
-				expressionBuilder.append(currentChar);
-			}
-		}
-		
-		return expressionBuilder.toString();
+		render(engine.clear());
 	}
 	
 	
 	/**
-	 * Returns a value when given an expression of the form produced by the game.
-	 * That is, (((...(val1 op1 val2) op2 val3) op3 val4)...).
-	 * 
-	 * @param s - The expression to be parsed.
-	 * @return - The value s evaluates to.
+	 * Colours the path, with the newest one being reddest. This allows the
+	 * user to see the order in which they clicked the tiles. 
 	 */
-	private static int expressionToValue(String s) 
+	private static void colourPath()
 	{
-		char currentChar = 0;
-		char currentOperation = 0;
-		int accumulator = 0;
-		boolean firstNumberSeen = false;
-		
-		// Parses the supplied expression from left to right.
-		// The partial value is stored in accumulator.
-		for(int i = 0; i < s.length(); i++)
+		int[] path = engine.path();
+		int length = path.length;
+		
+		// Colour each tile based on it's position in path.
+		for(int i = 0; i < length; i++) 
 		{
-			currentChar = s.charAt(i);
-			switch(currentChar)
-			{
-			case '(':
-			case ')':
-				continue;
-			case '*':
-				currentOperation = '*';
-				break;
-			case '+':
-				currentOperation = '+';
-				break;
-			case '-':
-				currentOperation = '-';
-				break;
-			case '%':
-				currentOperation = '%';
-				break;
-			default:
-				// A number has been found.
-				int currentNumber = Integer.parseInt(String.valueOf(currentChar));
-				if(!firstNumberSeen) {
-					accumulator = currentNumber;
-					firstNumberSeen = true;
-				} else {
-					// Applies the operators.
-					switch(currentOperation) 
-					{
-					case '*':
-						accumulator *= currentNumber;
-						break;
-					case '+':
-						accumulator += currentNumber;
-						break;
-					case '%':
-						// Catching mod 0 to avoid ArithmeticException.
-						if(currentNumber == 0) {
-							accumulator = 0;
-						} else {
-							accumulator %= currentNumber;
-						}
-						break;
-					case '-':
-						accumulator -= currentNumber;
-						break;
-					}
-				}
-			}
+			gui.setTileBackground(path[i],
+					new Color((float)i/length, 0.0f, 0.0f));
 		}
-		
-		return accumulator;
 	}
-}
\ No newline at end of file
+}
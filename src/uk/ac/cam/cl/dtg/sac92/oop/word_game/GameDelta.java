@@ -0,0 +1,121 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game;
+
+/**
+ * What changed in a game as the result of an action on a GameEngine, so
+ * that a view only has to redraw what changed. A rejected action changes
+ * nothing and carries the reason it was rejected.
+ *
+ * Cells are numbered as in the Grid, x + width*y.
+ *
+ * @author Navid
+ *
+ */
+public final class GameDelta {
+
+	private static final int[] NO_CELLS = new int[0];
+
+	private final String rejection;
+	private final int[] added;
+	private final int[] removed;
+	private final Expression expression;
+	private final int score;
+	private final boolean requiredValueStale;
+	private final boolean boardChanged;
+
+	/**
+	 * Constructor - Records the result of an action that was carried out.
+	 *
+	 * @param added - Cells added to the path, in the order added.
+	 * @param removed - Cells taken off the path.
+	 * @param expression - Expression of the path afterwards.
+	 * @param score - Score afterwards.
+	 * @param requiredValueStale - Whether a new required value is needed.
+	 * @param boardChanged - Whether the tiles have been moved.
+	 */
+	GameDelta(int[] added, int[] removed, Expression expression, int score,
+			boolean requiredValueStale, boolean boardChanged)
+	{
+		this.rejection = null;
+		this.added = added;
+		this.removed = removed;
+		this.expression = expression;
+		this.score = score;
+		this.requiredValueStale = requiredValueStale;
+		this.boardChanged = boardChanged;
+	}
+
+	/**
+	 * Constructor - Records an action that was rejected.
+	 *
+	 * @param rejection - Why it was rejected, to show the player.
+	 * @param expression - Expression of the path, which is unchanged.
+	 * @param score - Score, which is unchanged.
+	 */
+	GameDelta(String rejection, Expression expression, int score)
+	{
+		this.rejection = rejection;
+		this.added = NO_CELLS;
+		this.removed = NO_CELLS;
+		this.expression = expression;
+		this.score = score;
+		this.requiredValueStale = false;
+		this.boardChanged = false;
+	}
+
+	/**
+	 * Was the action carried out.
+	 * @return - True if it was, false if it was rejected.
+	 */
+	public boolean isAccepted() {return rejection == null;}
+
+	/**
+	 * Gets why the action was rejected.
+	 * @return - The reason, or null if it was accepted.
+	 */
+	public String rejection() {return rejection;}
+
+	/**
+	 * Gets the cells added to the path. The array must not be modified.
+	 * @return - The cells, in the order they were added.
+	 */
+	public int[] added() {return added;}
+
+	/**
+	 * Gets the cells taken off the path. The array must not be modified.
+	 * @return - The cells.
+	 */
+	public int[] removed() {return removed;}
+
+	/**
+	 * Gets the value of the path after the action.
+	 * @return - The value.
+	 */
+	public int value() {return expression.value();}
+
+	/**
+	 * Gets the expression of the path after the action. Its text is only
+	 * put together when it is asked for.
+	 * @return - The expression.
+	 */
+	public Expression expression() {return expression;}
+
+	/**
+	 * Gets the score after the action.
+	 * @return - The score.
+	 */
+	public int score() {return score;}
+
+	/**
+	 * Does the game need a new required value, e.g. after a correct answer
+	 * or a shuffle.
+	 * @return - True if the required value is no longer valid.
+	 */
+	public boolean isRequiredValueStale() {return requiredValueStale;}
+
+	/**
+	 * Have the tiles been moved, in which case the whole board has to be
+	 * redrawn.
+	 * @return - True if the board changed.
+	 */
+	public boolean isBoardChanged() {return boardChanged;}
+}
@@ -0,0 +1,396 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.Difficulty;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.DifficultyGenerator;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.GameState;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.SearchBudget;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Grid;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Tile;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.TileCollection;
+
+/**
+ * The rules and state of one game, without any GUI, so that a game can be
+ * played from Swing, a server or a benchmark and several can run in one
+ * JVM.
+ *
+ * The player builds a path of adjacent tiles, alternating numbers and
+ * operators and starting with a number, and submits it when its value is
+ * the required value. Each action returns a GameDelta saying what changed,
+ * or why the action was rejected, so a view only redraws what changed.
+ *
+ * The engine does not generate required values itself, as that can take
+ * seconds: when a delta says the required value is stale the caller asks
+ * for one, e.g. with generateRequiredValue() or in the background from
+ * DifficultyGenerator with rootState(), and hands it to setRequiredValue().
+ * A path cannot be submitted until it has. An engine is not thread safe,
+ * it is meant to be used by one thread at a time.
+ *
+ * Every path the player has had is kept, so changes to the path, including
+ * clearing it and submitting it, can be undone and redone as far back as
+ * the last shuffle. The paths are TilePaths sharing their arrays, so this
+ * costs little, and taking tiles off the path or going back to an earlier
+ * path never works out an expression again.
+ *
+ * @author Navid
+ *
+ */
+public class GameEngine {
+
+	private static final int SCORE_CONST = 1000;
+
+	private final int width;
+	private final int height;
+	private final Random random;
+
+	private Grid grid;
+	private TilePath path = TilePath.EMPTY;
+	// Where each cell is on the path, or -1 if it is not on it.
+	private int[] positions;
+	// Every path since the last shuffle, the current one at current.
+	private ArrayList<TilePath> history = new ArrayList<TilePath>();
+	private int current = 0;
+	private int score = 0;
+	private int requiredValue = 0;
+	private boolean hasRequiredValue = false;
+	private Difficulty difficulty;
+
+	/**
+	 * Constructor - Starts a game on a random board.
+	 *
+	 * @param width - Width of the board.
+	 * @param height - Height of the board.
+	 * @param difficulty - The difficulty.
+	 */
+	public GameEngine(int width, int height, Difficulty difficulty)
+	{
+		this(width, height, new TileCollection(), difficulty, new Random());
+	}
+
+	/**
+	 * Constructor - Starts a game on a given board.
+	 *
+	 * @param width - Width of the board.
+	 * @param height - Height of the board.
+	 * @param tiles - The tiles, in order of their cells.
+	 * @param difficulty - The difficulty.
+	 * @param random - Used to shuffle the tiles.
+	 */
+	public GameEngine(int width, int height, TileCollection tiles,
+			Difficulty difficulty, Random random)
+	{
+		this.width = width;
+		this.height = height;
+		this.grid = new Grid(width, height, tiles);
+		this.difficulty = difficulty;
+		this.random = random;
+		resetPath();
+	}
+
+	/**
+	 * Processes a click on a cell. Clicking a tile on the path removes it
+	 * and every tile added after it. Clicking any other tile adds it to the
+	 * end of the path, if that makes a valid path.
+	 *
+	 * @param cell - The cell clicked.
+	 * @return - What changed, or why the click was rejected.
+	 */
+	public GameDelta click(int cell)
+	{
+		Tile source = grid.tileAt(cell);
+
+		// Catch the case where the player has not picked any tiles yet and
+		// tries to pick an operator.
+		if(path.isEmpty() && source.isOperator())
+			return rejected("You cannot start an expression with an operator.");
+
+		if(positions[cell] >= 0) {
+			// Remove the tile from the path along with any tiles that were
+			// added after it, going back to the path before it.
+			return record(path.prefix(positions[cell]), false);
+		}
+
+		if(!path.isEmpty()) {
+			Tile previous = grid.tileAt(path.cell(path.length() - 1));
+			if(!Grid.isNeighbour(source, previous, grid))
+				return rejected("Your tiles must be adjacent.");
+			if(source.isOperator() == previous.isOperator())
+				return rejected("There cannot be two of these in a row.");
+		}
+
+		return record(path.append(cell, source.letter()), false);
+	}
+
+	/**
+	 * Submits the path. If its value is the required value the score goes
+	 * up, the path is cleared and a new required value is needed.
+	 *
+	 * @return - What changed, or why the path was not accepted.
+	 */
+	public GameDelta submit()
+	{
+		if(!hasRequiredValue)
+			return rejected("There is no required value yet.");
+		if(path.value() != requiredValue)
+			return rejected("Not quite right :(");
+
+		// Calculate the score of the user's input path.
+		score += difficulty.multiplier() * SCORE_CONST / (1 + path.length()/2);
+		hasRequiredValue = false;
+		return record(TilePath.EMPTY, true);
+	}
+
+	/**
+	 * Shuffles the tiles on the board and clears the path, keeping the
+	 * score. The tiles are moved around the same Grid, so a view of it can
+	 * stay and only redraw the tiles. A new required value is needed for
+	 * the new board. The paths on the old board can no longer be undone.
+	 *
+	 * @return - What changed.
+	 */
+	public GameDelta shuffle()
+	{
+		int[] removed = path.cells();
+		for(int cell : removed)
+			grid.tileAt(cell).active(false);
+
+		Tile[] shuffledTiles = new Tile[grid.cells()];
+		for(int cell = 0; cell < shuffledTiles.length; cell++)
+			shuffledTiles[cell] = grid.tileAt(cell);
+
+		// Fisher-Yates shuffle.
+		for(int i = shuffledTiles.length - 1; i > 0; i--)
+		{
+			int swapIndex = random.nextInt(i + 1);
+			Tile temp = shuffledTiles[i];
+			shuffledTiles[i] = shuffledTiles[swapIndex];
+			shuffledTiles[swapIndex] = temp;
+		}
+
+		for(int cell = 0; cell < shuffledTiles.length; cell++)
+			grid.setTileAt(new Point(cell % width, cell / width),
+					shuffledTiles[cell]);
+		resetPath();
+		requiredValue = 0;
+		hasRequiredValue = false;
+		return new GameDelta(new int[0], removed, path.expression(), score,
+				true, true);
+	}
+
+	/**
+	 * Clears the path.
+	 *
+	 * @return - What changed.
+	 */
+	public GameDelta clear()
+	{
+		return record(TilePath.EMPTY, false);
+	}
+
+	/**
+	 * Goes back to the path before the last change to it, which may have
+	 * been a clear or a submit. The score is not changed.
+	 *
+	 * @return - What changed, or why there was nothing to undo.
+	 */
+	public GameDelta undo()
+	{
+		if(current == 0)
+			return rejected("There is nothing to undo.");
+		current--;
+		return moveTo(history.get(current), false);
+	}
+
+	/**
+	 * Goes forward to the path an undo went back from.
+	 *
+	 * @return - What changed, or why there was nothing to redo.
+	 */
+	public GameDelta redo()
+	{
+		if(current == history.size() - 1)
+			return rejected("There is nothing to redo.");
+		current++;
+		return moveTo(history.get(current), false);
+	}
+
+	/**
+	 * Is there a change to the path to undo.
+	 * @return - True if there is.
+	 */
+	public boolean canUndo() {return current > 0;}
+
+	/**
+	 * Is there an undone change to the path to redo.
+	 * @return - True if there is.
+	 */
+	public boolean canRedo() {return current < history.size() - 1;}
+
+	/**
+	 * Changes the difficulty, after which a new required value is needed.
+	 *
+	 * @param difficulty - The difficulty.
+	 */
+	public void setDifficulty(Difficulty difficulty)
+	{
+		this.difficulty = difficulty;
+		hasRequiredValue = false;
+	}
+
+	/**
+	 * Sets the value the player has to make.
+	 *
+	 * @param requiredValue - The required value.
+	 */
+	public void setRequiredValue(int requiredValue)
+	{
+		this.requiredValue = requiredValue;
+		hasRequiredValue = true;
+	}
+
+	/**
+	 * Generates a required value for the board and difficulty and sets it.
+	 * This can take as long as the budget allows, so a GUI should not call
+	 * it from its event thread.
+	 *
+	 * @param budget - Limits the search.
+	 * @return - The required value.
+	 */
+	public int generateRequiredValue(SearchBudget budget)
+	{
+		setRequiredValue(DifficultyGenerator.requiredNumberFor(difficulty,
+				rootState(), budget));
+		return requiredValue;
+	}
+
+	/**
+	 * Gets the state of the board with nothing on the path, which required
+	 * values are generated from.
+	 * @return - The GameState.
+	 */
+	public GameState rootState() {return new GameState(grid);}
+
+	/**
+	 * Gets the grid, whose tiles are moved by a shuffle.
+	 * @return - The grid.
+	 */
+	public Grid grid() {return grid;}
+
+	/**
+	 * Gets the cells on the path.
+	 * @return - The cells, in the order they were added.
+	 */
+	public int[] path() {return path.cells();}
+
+	/**
+	 * Gets the value of the path.
+	 * @return - The value.
+	 */
+	public int value() {return path.value();}
+
+	/**
+	 * Gets the expression the path makes.
+	 * @return - The expression.
+	 */
+	public Expression expression() {return path.expression();}
+
+	/**
+	 * Gets the score.
+	 * @return - The score.
+	 */
+	public int score() {return score;}
+
+	/**
+	 * Gets the value the player has to make.
+	 * @return - The required value, only meaningful if hasRequiredValue().
+	 */
+	public int requiredValue() {return requiredValue;}
+
+	/**
+	 * Is there a required value for the board and difficulty.
+	 * @return - True if there is.
+	 */
+	public boolean hasRequiredValue() {return hasRequiredValue;}
+
+	/**
+	 * Gets the difficulty.
+	 * @return - The difficulty.
+	 */
+	public Difficulty difficulty() {return difficulty;}
+
+	/**
+	 * Starts an empty path, with no history, on a new grid.
+	 */
+	private void resetPath()
+	{
+		path = TilePath.EMPTY;
+		positions = new int[grid.cells()];
+		Arrays.fill(positions, -1);
+		history.clear();
+		history.add(path);
+		current = 0;
+	}
+
+	/**
+	 * Changes the path and adds the new path to the history, dropping any
+	 * undone paths after the current one. A change that leaves the path as
+	 * it was, e.g. clearing an empty path, is not added.
+	 *
+	 * @param next - The new path.
+	 * @param requiredValueStale - Whether a new required value is needed.
+	 * @return - What changed.
+	 */
+	private GameDelta record(TilePath next, boolean requiredValueStale)
+	{
+		if(next != path) {
+			history.subList(current + 1, history.size()).clear();
+			history.add(next);
+			current++;
+		}
+		return moveTo(next, requiredValueStale);
+	}
+
+	/**
+	 * Changes the path, taking off the tiles after the part it has in
+	 * common with the new path and adding the rest of the new path.
+	 *
+	 * @param next - The new path.
+	 * @param requiredValueStale - Whether a new required value is needed.
+	 * @return - What changed.
+	 */
+	private GameDelta moveTo(TilePath next, boolean requiredValueStale)
+	{
+		int common = path.commonPrefix(next);
+
+		int[] removed = new int[path.length() - common];
+		for(int i = common; i < path.length(); i++)
+		{
+			int cell = path.cell(i);
+			grid.tileAt(cell).active(false);
+			positions[cell] = -1;
+			removed[i - common] = cell;
+		}
+
+		int[] added = new int[next.length() - common];
+		for(int i = common; i < next.length(); i++)
+		{
+			int cell = next.cell(i);
+			grid.tileAt(cell).active(true);
+			positions[cell] = i;
+			added[i - common] = cell;
+		}
+
+		path = next;
+		return new GameDelta(added, removed, path.expression(), score,
+				requiredValueStale, false);
+	}
+
+	private GameDelta rejected(String reason)
+	{
+		return new GameDelta(reason, path.expression(), score);
+	}
+}
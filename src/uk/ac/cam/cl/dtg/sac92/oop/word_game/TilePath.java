@@ -0,0 +1,166 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game;
+
+/**
+ * The cells on a player's path with the expression, and so the value,
+ * after each of them. A path is immutable: adding a cell gives a new path
+ * and going back to any prefix of it is a constant time lookup of the
+ * expression already worked out for that prefix, so nothing is removed or
+ * evaluated again.
+ *
+ * As for Expression, the paths made from one another share their arrays,
+ * which are only appended to by the path at the end of them, so keeping
+ * every path a player has had, e.g. to undo, costs little more than the
+ * longest of them.
+ *
+ * Cells are numbered as in the Grid, x + width*y.
+ *
+ * @author Navid
+ *
+ */
+public final class TilePath {
+
+	// The path with nothing on it.
+	public static final TilePath EMPTY = new TilePath(new Buffer(), 0);
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final Buffer buffer;
+	private final int length;
+
+	private TilePath(Buffer buffer, int length)
+	{
+		this.buffer = buffer;
+		this.length = length;
+	}
+
+	/**
+	 * Adds a cell to the end of the path. The path is assumed to stay
+	 * valid.
+	 *
+	 * @param cell - The cell.
+	 * @param letter - The letter on its tile.
+	 * @return - The longer path.
+	 */
+	public TilePath append(int cell, char letter)
+	{
+		Expression e = expression().append(letter);
+		Buffer b = buffer;
+
+		synchronized(b) {
+			// Claim the end of the arrays if this path is at it.
+			if(b.used == length && length < b.cells.length) {
+				b.cells[length] = cell;
+				b.expressions[length] = e;
+				b.used++;
+				return new TilePath(b, length + 1);
+			}
+		}
+
+		// Otherwise copy to arrays of its own, doubling their size so that
+		// appends stay constant time on average.
+		b = new Buffer();
+		int capacity = Math.max(INITIAL_CAPACITY, 2 * (length + 1));
+		b.cells = new int[capacity];
+		b.expressions = new Expression[capacity];
+		System.arraycopy(buffer.cells, 0, b.cells, 0, length);
+		System.arraycopy(buffer.expressions, 0, b.expressions, 0, length);
+		b.cells[length] = cell;
+		b.expressions[length] = e;
+		b.used = length + 1;
+		return new TilePath(b, length + 1);
+	}
+
+	/**
+	 * Gets the path made of the first cells of this one.
+	 *
+	 * @param n - The number of cells, from 0 to length().
+	 * @return - The shorter path.
+	 */
+	public TilePath prefix(int n)
+	{
+		if(n < 0 || n > length) {
+			throw new IndexOutOfBoundsException("TilePath:prefix(" + n +
+					"): path has " + length + " cells");
+		}
+		return n == length ? this : n == 0 ? EMPTY : new TilePath(buffer, n);
+	}
+
+	/**
+	 * Gets the number of cells on the path.
+	 * @return - The length.
+	 */
+	public int length() {return length;}
+
+	/**
+	 * Is there nothing on the path.
+	 * @return - True if the path is empty.
+	 */
+	public boolean isEmpty() {return length == 0;}
+
+	/**
+	 * Gets a cell on the path.
+	 * @param i - Its position, from 0.
+	 * @return - The cell.
+	 */
+	public int cell(int i)
+	{
+		if(i < 0 || i >= length) {
+			throw new IndexOutOfBoundsException("TilePath:cell(" + i +
+					"): path has " + length + " cells");
+		}
+		return buffer.cells[i];
+	}
+
+	/**
+	 * Gets the cells on the path.
+	 * @return - A copy of the cells, in order.
+	 */
+	public int[] cells()
+	{
+		int[] cells = new int[length];
+		System.arraycopy(buffer.cells, 0, cells, 0, length);
+		return cells;
+	}
+
+	/**
+	 * Gets the expression the path makes.
+	 * @return - The expression.
+	 */
+	public Expression expression()
+	{
+		return length == 0 ? Expression.EMPTY : buffer.expressions[length - 1];
+	}
+
+	/**
+	 * Gets the value of the path.
+	 * @return - The value, 0 for an empty path.
+	 */
+	public int value() {return expression().value();}
+
+	/**
+	 * Gets the number of cells at the start of two paths that are the same.
+	 *
+	 * @param other - The other path.
+	 * @return - The length of the common prefix.
+	 */
+	public int commonPrefix(TilePath other)
+	{
+		int n = Math.min(length, other.length);
+		if(buffer == other.buffer)
+			return n;
+
+		int i = 0;
+		while(i < n && buffer.cells[i] == other.buffer.cells[i])
+			i++;
+		return i;
+	}
+
+	/**
+	 * The arrays shared by paths, and how much of them is in use.
+	 */
+	private static class Buffer {
+		int[] cells = new int[0];
+		Expression[] expressions = new Expression[0];
+		int used = 0;
+	}
+}
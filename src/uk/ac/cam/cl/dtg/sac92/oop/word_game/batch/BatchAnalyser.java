@@ -0,0 +1,307 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.batch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.Difficulty;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.GameState;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.ValueEnumerator;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.ValueHistogram;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Grid;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Tile;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.TileCollection;
+
+/**
+ * Analyses many boards without a GUI, e.g. to calibrate the difficulties or
+ * to check that a change to the search gives the same results.
+ * 
+ * Usage: BatchAnalyser input output [levels] [threads]
+ * 
+ * Each line of the input is a board: either a seed, giving the same 8x8
+ * board as new TileCollection(seed), or a layout of rows separated by '/'
+ * such as "1+2/*3-/4%5". Blank lines and lines starting with '#' are
+ * skipped, as are lines that are not boards and boards whose analysis
+ * fails, each with a message giving its line. Levels are "all" (the
+ * default) or a list such as "1,3,5", and threads defaults to the number of
+ * cores.
+ * 
+ * Boards are analysed on a thread each, so every core is kept busy, and a
+ * tab separated line is written to the output for each board and level as
+ * soon as it is done: the board's line number, the board, the level, the
+ * depth, the number of distinct values, the number of GameStates, the
+ * rarest values with their counts and the time taken. At the end the number
+ * of boards and GameStates per second is printed.
+ * 
+ * @author Navid
+ *
+ */
+public class BatchAnalyser {
+
+	private static final int WIDTH = 8;
+	private static final int HEIGHT = 8;
+	// Number of the rarest values written for each board.
+	private static final int RAREST = 5;
+	// Boards queued per thread, so reading stays a little ahead of analysis.
+	private static final int QUEUED_PER_THREAD = 4;
+	private static final String HEADER =
+			"# line\tboard\tlevel\tdepth\tdistinct\tstates\trarest\tmillis\n";
+
+	private final List<Difficulty> levels;
+	private final int threads;
+	private final AtomicLong states = new AtomicLong();
+	private final AtomicInteger failed = new AtomicInteger();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param levels - Difficulties to analyse each board at.
+	 * @param threads - Number of boards to analyse at once.
+	 */
+	public BatchAnalyser(List<Difficulty> levels, int threads)
+	{
+		this.levels = levels;
+		this.threads = threads;
+	}
+
+	public static void main(String[] args)
+			throws IOException, InterruptedException
+	{
+		if(args.length < 2) {
+			System.err.println("Usage: BatchAnalyser input output [levels] " +
+					"[threads]");
+			System.exit(1);
+		}
+
+		List<Difficulty> levels = parseLevels(args.length > 2 ? args[2]
+				: "all");
+		int threads = args.length > 3 ? Integer.parseInt(args[3])
+				: Runtime.getRuntime().availableProcessors();
+
+		new BatchAnalyser(levels, threads).run(args[0], args[1]);
+	}
+
+	/**
+	 * Analyses every board in the input, writing the results to the output.
+	 * 
+	 * @param input - Path of the file of boards.
+	 * @param output - Path of the file to write the results to.
+	 * @throws IOException - If the files cannot be read or written.
+	 * @throws InterruptedException - If interrupted while waiting for a
+	 * board to be analysed.
+	 */
+	public void run(String input, String output)
+			throws IOException, InterruptedException
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		CompletionService<String> done =
+				new ExecutorCompletionService<String>(pool);
+		int queued = 0;
+		int boards = 0;
+		int skipped = 0;
+		long start = System.nanoTime();
+
+		try(BufferedReader in = Files.newBufferedReader(Paths.get(input),
+				StandardCharsets.UTF_8);
+			BufferedWriter out = Files.newBufferedWriter(Paths.get(output),
+				StandardCharsets.UTF_8))
+		{
+			out.write(HEADER);
+
+			String line;
+			int lineNumber = 0;
+			while((line = in.readLine()) != null)
+			{
+				lineNumber++;
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#"))
+					continue;
+
+				final GameState gs;
+				try {
+					gs = new GameState(parseBoard(line));
+				} catch(IllegalArgumentException e) {
+					System.err.println("Line " + lineNumber + ": " +
+							e.getMessage());
+					skipped++;
+					continue;
+				}
+
+				final int number = lineNumber;
+				final String board = line;
+				done.submit(new Callable<String>() {
+					@Override
+					public String call()
+					{
+						// One board failing does not stop the others.
+						try {
+							return analyse(number, board, gs);
+						} catch(RuntimeException e) {
+							System.err.println("Line " + number +
+									": analysis failed: " + e);
+							failed.incrementAndGet();
+							return "";
+						}
+					}
+				});
+				boards++;
+
+				// Write results as they finish, keeping the queue short.
+				if(++queued >= threads * QUEUED_PER_THREAD) {
+					out.write(result(done));
+					queued--;
+				}
+			}
+
+			for(; queued > 0; queued--)
+				out.write(result(done));
+		} finally {
+			pool.shutdownNow();
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("Analysed %d boards (%d skipped, " +
+				"%d failed) on %d threads in %.2f s: %.1f boards/s, %.0f " +
+				"states/s", boards, skipped, failed.get(), threads, seconds,
+				boards / seconds, states.get() / seconds));
+	}
+
+	/**
+	 * Analyses one board at each level.
+	 * 
+	 * @param line - Line number of the board.
+	 * @param board - The board as given in the input.
+	 * @param gs - The board with nothing on the path.
+	 * @return - A line of results for each level.
+	 */
+	private String analyse(int line, String board, GameState gs)
+	{
+		StringBuilder s = new StringBuilder();
+
+		for(Difficulty dif : levels)
+		{
+			long start = System.nanoTime();
+			ValueHistogram histogram = ValueEnumerator.histogram(gs,
+					dif.depth());
+			long millis = (System.nanoTime() - start) / 1000000;
+			states.addAndGet(histogram.total());
+
+			s.append(line).append('\t').append(board).append('\t')
+				.append(dif).append('\t').append(dif.depth()).append('\t')
+				.append(histogram.distinct()).append('\t')
+				.append(histogram.total()).append('\t');
+
+			int[] ranked = histogram.rankedValues();
+			for(int i = 0; i < Math.min(RAREST, ranked.length); i++)
+			{
+				if(i > 0)
+					s.append(',');
+				s.append(ranked[i]).append(':')
+					.append(histogram.count(ranked[i]));
+			}
+
+			s.append('\t').append(millis).append('\n');
+		}
+
+		return s.toString();
+	}
+
+	/**
+	 * Waits for the next board to be analysed. A board whose analysis threw
+	 * has already been reported and gives no results, only an Error, e.g.
+	 * running out of memory, stops the batch.
+	 * 
+	 * @param done - The boards being analysed.
+	 * @return - Its results.
+	 */
+	private static String result(CompletionService<String> done)
+			throws InterruptedException
+	{
+		try {
+			return done.take().get();
+		} catch(ExecutionException e) {
+			throw new IllegalStateException("Analysis failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Turns a line of the input into a grid.
+	 * 
+	 * @param line - A seed or a layout.
+	 * @return - The grid.
+	 * @throws IllegalArgumentException - If the line is neither.
+	 */
+	static Grid parseBoard(String line)
+	{
+		if(line.matches("-?\\d+"))
+			return new Grid(WIDTH, HEIGHT,
+					new TileCollection(Long.parseLong(line)));
+
+		String[] rows = line.split("/");
+		if(rows.length == 0 || rows[0].isEmpty())
+			throw new IllegalArgumentException("board has no tiles");
+		int width = rows[0].length();
+		Tile[] tiles = new Tile[width * rows.length];
+
+		for(int y = 0; y < rows.length; y++)
+		{
+			if(rows[y].length() != width) {
+				throw new IllegalArgumentException("row " + (y + 1) + " has " +
+						rows[y].length() + " tiles, expected " + width);
+			}
+			for(int x = 0; x < width; x++)
+			{
+				char c = rows[y].charAt(x);
+				// Only ASCII digits, other scripts' digits are not tiles.
+				if(!(c >= '0' && c <= '9') && "+-*%".indexOf(c) < 0) {
+					throw new IllegalArgumentException("'" + c +
+							"' is not a tile");
+				}
+				tiles[x + width * y] = new Tile(c);
+			}
+		}
+
+		return new Grid(width, rows.length, new TileCollection(tiles));
+	}
+
+	/**
+	 * Turns a list of levels such as "1,3,5", or "all", into difficulties.
+	 * 
+	 * @param s - The list.
+	 * @return - The difficulties.
+	 */
+	static List<Difficulty> parseLevels(String s)
+	{
+		List<Difficulty> levels = new ArrayList<Difficulty>();
+
+		if(s.equals("all")) {
+			for(Difficulty dif : Difficulty.values())
+				levels.add(dif);
+			return levels;
+		}
+
+		for(String level : s.split(","))
+		{
+			int n = Integer.parseInt(level.trim());
+			if(n < 1 || n > Difficulty.values().length) {
+				throw new IllegalArgumentException("No level " + n +
+						", levels are 1 to " + Difficulty.values().length);
+			}
+			levels.add(Difficulty.values()[n - 1]);
+		}
+		return levels;
+	}
+}
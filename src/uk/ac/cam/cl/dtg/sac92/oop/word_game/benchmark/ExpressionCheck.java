@@ -0,0 +1,339 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.Expression;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.GameDelta;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.GameEngine;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.TilePath;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.Difficulty;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.TileCollection;
+
+/**
+ * Checks Expression and TilePath against the way GameEngine used to render
+ * and evaluate the path, re-rendering the whole path as text and parsing it
+ * after every tile. Random paths are built a tile at a time, going back to
+ * earlier prefixes along the way as removing tiles and undoing do, and
+ * every expression is compared with the old rendering and value. Then a
+ * GameEngine is played at random, checking that undo and redo go back and
+ * forward through the paths it has had.
+ *
+ * Throws an IllegalStateException, and so exits with an error, on the
+ * first mismatch.
+ *
+ * Usage: ExpressionCheck [paths] [seed]
+ *
+ * @author Navid
+ *
+ */
+public class ExpressionCheck {
+
+	private static final int WIDTH = 8;
+	private static final int HEIGHT = 8;
+	private static final int MAX_TILES = 30;
+	private static final String OPERATORS = "*+-%";
+	// Actions played on the GameEngine for each path checked.
+	private static final int ACTIONS_PER_PATH = 10;
+
+	public static void main(String[] args)
+	{
+		int paths = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+
+		long start = System.nanoTime();
+		long prefixes = checkPaths(new Random(seed), paths);
+		System.out.println(String.format("%d paths, %d prefixes match the " +
+				"old expressions, %.0f ms", paths, prefixes,
+				(System.nanoTime() - start) / 1e6));
+
+		start = System.nanoTime();
+		int[] moves = checkUndoRedo(new Random(seed), paths * ACTIONS_PER_PATH);
+		System.out.println(String.format("%d actions, %d undos and %d redos " +
+				"match the paths played, %.0f ms", paths * ACTIONS_PER_PATH,
+				moves[0], moves[1], (System.nanoTime() - start) / 1e6));
+	}
+
+	/**
+	 * Builds random paths, alternating digits and operators, and compares
+	 * each prefix with the old rendering. Now and then it goes back to an
+	 * earlier prefix, or to a path kept from before, and carries on from
+	 * there, so paths that share their arrays are checked too.
+	 *
+	 * @param random - Chooses the tiles.
+	 * @param paths - Number of paths to build.
+	 * @return - Number of prefixes compared.
+	 */
+	private static long checkPaths(Random random, int paths)
+	{
+		long prefixes = 0;
+		TilePath kept = TilePath.EMPTY;
+		List<Character> keptLetters = new ArrayList<Character>();
+
+		for(int p = 0; p < paths; p++)
+		{
+			TilePath path = TilePath.EMPTY;
+			List<Character> letters = new ArrayList<Character>();
+			int tiles = 1 + random.nextInt(MAX_TILES);
+
+			for(int t = 0; t < tiles; t++)
+			{
+				if(!letters.isEmpty() && random.nextInt(6) == 0) {
+					int n = random.nextInt(letters.size());
+					path = path.prefix(n);
+					letters.subList(n, letters.size()).clear();
+				} else if(random.nextInt(50) == 0) {
+					path = kept;
+					letters = new ArrayList<Character>(keptLetters);
+				}
+
+				char letter = letters.size() % 2 == 0
+						? (char)('0' + random.nextInt(10))
+						: OPERATORS.charAt(random.nextInt(OPERATORS.length()));
+				path = path.append(cell(letters.size(), letter), letter);
+				letters.add(letter);
+
+				for(int n = 0; n <= letters.size(); n++)
+					check(path.prefix(n), letters.subList(0, n));
+				prefixes += letters.size() + 1;
+
+				// The kept path must not see the tiles added since.
+				check(kept, keptLetters);
+				int common = 0;
+				while(common < Math.min(letters.size(), keptLetters.size()) &&
+						letters.get(common).equals(keptLetters.get(common)))
+					common++;
+				if(path.commonPrefix(kept) != common)
+					throw new IllegalStateException("Common prefix of " +
+							path.expression() + " and " + kept.expression() +
+							" is " + path.commonPrefix(kept));
+			}
+
+			if(random.nextInt(4) == 0) {
+				kept = path;
+				keptLetters = new ArrayList<Character>(letters);
+			}
+		}
+
+		return prefixes;
+	}
+
+	/**
+	 * Gives a tile a cell of its own from its place on the path and its
+	 * letter, so paths have the same cells where they have the same letters.
+	 */
+	private static int cell(int index, char letter)
+	{
+		return index * 256 + letter;
+	}
+
+	/**
+	 * Compares a path with the old rendering of its letters.
+	 */
+	private static void check(TilePath path, List<Character> letters)
+	{
+		String expected = pathToExpression(letters);
+		Expression e = path.expression();
+		if(!e.toString().equals(expected) || e.length() != expected.length() ||
+				e.tiles() != letters.size() || path.length() != letters.size())
+			throw new IllegalStateException("Expression " + e + " should be " +
+					expected);
+		if(e.value() != expressionToValue(expected))
+			throw new IllegalStateException("Value of " + expected + " is " +
+					e.value() + " not " + expressionToValue(expected));
+
+		for(int i = 0; i < letters.size(); i++)
+		{
+			if(path.cell(i) != cell(i, letters.get(i)))
+				throw new IllegalStateException("Cell " + i + " of " +
+						expected + " is " + path.cell(i));
+		}
+	}
+
+	/**
+	 * Plays a GameEngine at random, keeping every path it has had since the
+	 * board last changed, and checks that undo and redo move through them,
+	 * that the cells added and removed describe the path and that its
+	 * expression matches the old rendering of the letters on it.
+	 *
+	 * @param random - Chooses the actions.
+	 * @param actions - Number of actions to play.
+	 * @return - The number of undos and redos accepted.
+	 */
+	private static int[] checkUndoRedo(Random random, int actions)
+	{
+		GameEngine engine = new GameEngine(WIDTH, HEIGHT,
+				new TileCollection(random.nextLong()), Difficulty.LEVEL_2,
+				new Random(random.nextLong()));
+		List<int[]> history = new ArrayList<int[]>();
+		history.add(new int[0]);
+		int current = 0;
+		// The path as seen by following the cells added and removed.
+		LinkedHashSet<Integer> seen = new LinkedHashSet<Integer>();
+		int undos = 0;
+		int redos = 0;
+
+		for(int a = 0; a < actions; a++)
+		{
+			int[] before = engine.path();
+			int action = random.nextInt(100);
+			GameDelta d;
+
+			if(action < 70) {
+				d = engine.click(random.nextInt(WIDTH * HEIGHT));
+			} else if(action < 74) {
+				d = engine.clear();
+			} else if(action < 75) {
+				d = engine.shuffle();
+			} else if(action < 90) {
+				d = engine.undo();
+				if(d.isAccepted() != (current > 0))
+					throw new IllegalStateException("Undo at " + current);
+				if(d.isAccepted()) {
+					current--;
+					undos++;
+				}
+			} else {
+				d = engine.redo();
+				if(d.isAccepted() != (current < history.size() - 1))
+					throw new IllegalStateException("Redo at " + current);
+				if(d.isAccepted()) {
+					current++;
+					redos++;
+				}
+			}
+
+			if(action < 75 && d.isAccepted()) {
+				if(d.isBoardChanged()) {
+					history.clear();
+					history.add(new int[0]);
+					current = 0;
+					seen.clear();
+					continue;
+				}
+				// A change to the path drops the paths that were undone.
+				if(!Arrays.equals(before, engine.path())) {
+					history.subList(current + 1, history.size()).clear();
+					history.add(engine.path());
+					current++;
+				}
+			}
+
+			int[] path = engine.path();
+			if(!Arrays.equals(path, history.get(current)))
+				throw new IllegalStateException("Path " +
+						Arrays.toString(path) + " should be " +
+						Arrays.toString(history.get(current)));
+			if(engine.canUndo() != current > 0 ||
+					engine.canRedo() != current < history.size() - 1)
+				throw new IllegalStateException("Undo and redo at " + current +
+						" of " + history.size());
+
+			for(int cell : d.removed())
+			{
+				if(!seen.remove(cell))
+					throw new IllegalStateException("Removed " + cell);
+			}
+			for(int cell : d.added())
+			{
+				if(!seen.add(cell))
+					throw new IllegalStateException("Added " + cell);
+			}
+			int i = 0;
+			for(int cell : seen)
+			{
+				if(i >= path.length || path[i++] != cell)
+					throw new IllegalStateException("Changes do not give " +
+							Arrays.toString(path));
+			}
+			if(i != path.length)
+				throw new IllegalStateException("Changes do not give " +
+						Arrays.toString(path));
+
+			List<Character> letters = new ArrayList<Character>();
+			for(int cell : path)
+				letters.add(engine.grid().tileAt(cell).letter());
+			String expected = pathToExpression(letters);
+			if(!engine.expression().toString().equals(expected) ||
+					engine.value() != expressionToValue(expected))
+				throw new IllegalStateException("Expression " +
+						engine.expression() + " should be " + expected);
+		}
+
+		return new int[] {undos, redos};
+	}
+
+	/**
+	 * Turns the letters on a path into an expression, as GameEngine used
+	 * to: * and % bracket everything before them.
+	 *
+	 * @param letters - The letters to convert.
+	 * @return - The expression.
+	 */
+	private static String pathToExpression(List<Character> letters)
+	{
+		StringBuilder expression = new StringBuilder();
+		for(char c : letters)
+		{
+			if((c == '*' || c == '%') && expression.length() != 1) {
+				expression.insert(0, '(');
+				expression.append(')');
+			}
+			expression.append(c);
+		}
+		return expression.toString();
+	}
+
+	/**
+	 * Evaluates an expression of the form produced by the game, as
+	 * GameEngine used to, from left to right.
+	 *
+	 * @param s - The expression to be parsed.
+	 * @return - The value s evaluates to.
+	 */
+	private static int expressionToValue(String s)
+	{
+		char operation = 0;
+		int accumulator = 0;
+		boolean firstNumberSeen = false;
+
+		for(char c : s.toCharArray())
+		{
+			if(c == '(' || c == ')')
+				continue;
+			if(OPERATORS.indexOf(c) >= 0) {
+				operation = c;
+				continue;
+			}
+
+			int n = c - '0';
+			if(!firstNumberSeen) {
+				accumulator = n;
+				firstNumberSeen = true;
+				continue;
+			}
+
+			switch(operation)
+			{
+			case '*':
+				accumulator *= n;
+				break;
+			case '+':
+				accumulator += n;
+				break;
+			case '%':
+				// Mod 0 gives 0 rather than an ArithmeticException.
+				accumulator = n == 0 ? 0 : accumulator % n;
+				break;
+			case '-':
+				accumulator -= n;
+				break;
+			}
+		}
+
+		return accumulator;
+	}
+}
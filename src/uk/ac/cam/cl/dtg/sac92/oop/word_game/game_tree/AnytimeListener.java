@@ -0,0 +1,18 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * Receives the result of an anytime analysis each time it completes a
+ * depth, so that a usable result is available before the search finishes.
+ * 
+ * @author Navid
+ *
+ */
+public interface AnytimeListener {
+
+	/**
+	 * Called from the searching thread when a depth has been completed.
+	 * 
+	 * @param result - The result so far, for the depth just completed.
+	 */
+	void depthCompleted(AnytimeResult result);
+}
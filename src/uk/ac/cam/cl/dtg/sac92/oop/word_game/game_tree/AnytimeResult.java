@@ -0,0 +1,82 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * The result of an anytime analysis: the value counts for the deepest depth
+ * completed within the budget, together with how far the search got.
+ * 
+ * @author Navid
+ *
+ */
+public class AnytimeResult {
+
+	private final ValueHistogram histogram;
+	private final int depth;
+	private final int targetDepth;
+	private final long nodes;
+	private final long elapsedMillis;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param histogram - Value counts for the depth completed.
+	 * @param depth - Deepest depth completed.
+	 * @param targetDepth - Depth that was asked for.
+	 * @param nodes - Number of states expanded.
+	 * @param elapsedMillis - Time taken in milliseconds.
+	 */
+	AnytimeResult(ValueHistogram histogram, int depth, int targetDepth,
+			long nodes, long elapsedMillis)
+	{
+		this.histogram = histogram;
+		this.depth = depth;
+		this.targetDepth = targetDepth;
+		this.nodes = nodes;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * Gets the value counts for the deepest depth completed. They may be
+	 * shared with other callers through the DifficultyGenerator cache, so
+	 * they are read-only.
+	 * @return - The counts of each value.
+	 */
+	public ValueHistogram histogram() {return histogram;}
+
+	/**
+	 * Gets the deepest depth completed, counting the root as one level.
+	 * @return - The depth.
+	 */
+	public int depth() {return depth;}
+
+	/**
+	 * Gets the depth that was asked for.
+	 * @return - The target depth.
+	 */
+	public int targetDepth() {return targetDepth;}
+
+	/**
+	 * Did the search reach the depth asked for.
+	 * @return - True if the result is for the target depth.
+	 */
+	public boolean isComplete() {return depth >= targetDepth;}
+
+	/**
+	 * Gets the number of states expanded, over all the depths.
+	 * @return - The number of states.
+	 */
+	public long nodes() {return nodes;}
+
+	/**
+	 * Gets the time taken.
+	 * @return - The time in milliseconds.
+	 */
+	public long elapsedMillis() {return elapsedMillis;}
+
+	@Override
+	public String toString()
+	{
+		return "AnytimeResult[depth=" + depth + "/" + targetDepth +
+				", distinct=" + histogram.distinct() + ", nodes=" + nodes +
+				", millis=" + elapsedMillis + "]";
+	}
+}
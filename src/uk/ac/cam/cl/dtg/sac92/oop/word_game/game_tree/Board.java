@@ -0,0 +1,156 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+import java.util.Arrays;
+
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Grid;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Tile;
+
+/**
+ * An immutable snapshot of the letters on a Grid, used by GameStates so that
+ * they can share one board instead of each cloning the Grid.
+ *
+ * Cells are numbered as in the Grid (cell = x + width*y) so any set of cells
+ * can be held as a bit mask in a single long, which is why a board can have
+ * at most 64 cells.
+ *
+ * @author Navid
+ *
+ */
+public final class Board {
+
+	// A set of cells has to fit in a long.
+	public static final int MAX_CELLS = 64;
+
+	private final int width;
+	private final int height;
+	// The letter on the tile in each cell.
+	private final byte[] letters;
+	// Masks of the cells holding operators and numbers respectively.
+	private final long operators;
+	private final long numbers;
+	// For each cell, the mask of the cells adjacent to it.
+	private final long[] neighbours;
+
+	/**
+	 * Constructor - Takes a snapshot of the letters currently on the grid.
+	 *
+	 * @param grid - The grid to copy.
+	 */
+	public Board(Grid grid)
+	{
+		width = grid.width();
+		height = grid.height();
+		int cells = width * height;
+
+		if(cells > MAX_CELLS) {
+			throw new IllegalArgumentException("Board:constructor(" + width +
+					", " + height + "): board can have at most " + MAX_CELLS +
+					" cells");
+		}
+
+		letters = new byte[cells];
+		neighbours = new long[cells];
+		long ops = 0;
+		long nums = 0;
+
+		for(int cell = 0; cell < cells; cell++)
+		{
+			Tile t = grid.tileAt(cell);
+			letters[cell] = (byte)t.letter();
+
+			if(t.isOperator()) {
+				ops |= 1L << cell;
+			} else {
+				nums |= 1L << cell;
+			}
+
+			// Turn the grid's list of adjacent cells into a mask.
+			for(int n : grid.neighbours(cell))
+				neighbours[cell] |= 1L << n;
+		}
+
+		operators = ops;
+		numbers = nums;
+	}
+
+	/**
+	 * Gets the width.
+	 * @return - The width.
+	 */
+	public int width() {return width;}
+
+	/**
+	 * Gets the height.
+	 * @return - The height.
+	 */
+	public int height() {return height;}
+
+	/**
+	 * Gets the number of cells on the board.
+	 * @return - The number of cells.
+	 */
+	public int cells() {return letters.length;}
+
+	/**
+	 * Gets the letter in a cell.
+	 * @param cell - The cell.
+	 * @return - The letter.
+	 */
+	public char letter(int cell) {return (char)letters[cell];}
+
+	/**
+	 * Gets the number held in a cell, only meaningful for number cells.
+	 * @param cell - The cell.
+	 * @return - The number.
+	 */
+	public int digit(int cell) {return letters[cell] - '0';}
+
+	/**
+	 * Does the cell hold an operator.
+	 * @param cell - The cell.
+	 * @return - True if it is an operator, false if it is a number.
+	 */
+	public boolean isOperator(int cell) {return (operators & (1L << cell)) != 0;}
+
+	/**
+	 * Gets the mask of cells holding operators.
+	 * @return - The mask.
+	 */
+	public long operators() {return operators;}
+
+	/**
+	 * Gets the mask of cells holding numbers.
+	 * @return - The mask.
+	 */
+	public long numbers() {return numbers;}
+
+	/**
+	 * Gets the mask of cells adjacent to a cell.
+	 * @param cell - The cell.
+	 * @return - The mask.
+	 */
+	public long neighbours(int cell) {return neighbours[cell];}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + width;
+		result = prime * result + Arrays.hashCode(letters);
+		return result;
+	}
+
+	/**
+	 * Boards are equal when they have the same letters in the same cells.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Board))
+			return false;
+		Board other = (Board) obj;
+		return width == other.width && height == other.height &&
+				Arrays.equals(letters, other.letters);
+	}
+}
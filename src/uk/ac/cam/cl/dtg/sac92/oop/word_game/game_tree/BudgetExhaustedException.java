@@ -0,0 +1,26 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Thrown by a SearchMonitor to stop a search that has run over its
+ * SearchBudget. It is a CancellationException, so code that handles a
+ * cancelled search handles it too, but anytime searches catch it to keep
+ * the result of the last depth they completed.
+ * 
+ * @author Navid
+ *
+ */
+public class BudgetExhaustedException extends CancellationException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructor.
+	 * @param message - Which limit was reached.
+	 */
+	public BudgetExhaustedException(String message)
+	{
+		super(message);
+	}
+}
@@ -0,0 +1,21 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+import java.util.ArrayList;
+
+/**
+ * Produces the children of a lazy Node when they are first needed.
+ * 
+ * @author Navid
+ *
+ * @param <T> - Parameter of Node.
+ */
+public interface ChildGenerator<T> {
+
+	/**
+	 * Generates the child nodes of a node.
+	 * 
+	 * @param value - Value of the node.
+	 * @return - The child nodes.
+	 */
+	ArrayList<Node<T>> generate(T value);
+}
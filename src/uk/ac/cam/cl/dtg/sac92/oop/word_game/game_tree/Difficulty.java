@@ -38,13 +38,13 @@ public enum Difficulty {
 	 * Gets the fraction.
 	 * @return - The fraction.
 	 */
-	float fraction() {return fraction;}
+	public float fraction() {return fraction;}
 	
 	/**
 	 * Gets the depth.
 	 * @return - The depth.
 	 */
-	int depth() {return depth;}
+	public int depth() {return depth;}
 	
 	/**
 	 * Gets the multiplier.
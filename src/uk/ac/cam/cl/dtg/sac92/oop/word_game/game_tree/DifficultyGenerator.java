@@ -1,61 +1,557 @@
 package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
 
-import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * This class generates numbers for the player to try and make based on the 
  * chosen difficulty, currently it generates a number of sufficient rarity 
- * based on the position it is placed in the frequency sorted list 
- * generated in GameTree by applying BFS to a IntTree (from a GameTree).
+ * based on the position it is placed in the frequency sorted list of the
+ * values reachable from the current GameState (found by ValueEnumerator).
  * However, it is easily extensible to allow for other types of games e.g. 
- * generate the most positive number possible in x moves as the GameTree 
+ * generate the most positive number possible in x moves as ValueEnumerator 
  * provides a convenient way to search the space of GameStates.
+ * 
+ * The value counts for each board and depth are cached, so picking another
+ * required value for the same board (e.g. after a correct answer) does not
+ * search again. The cache keeps the most recently used analyses and a board
+ * whose tiles change, e.g. by shuffling, simply gets a new entry.
+ * 
+ * The search can take seconds on the harder difficulties, so a required
+ * number can also be generated in the background. The caller gets a Future
+ * and is told of progress and the result through a GenerationListener, and
+ * cancelling the Future stops the search at its next progress report.
+ * 
+ * Generation can also be given a SearchBudget, of states expanded and time
+ * taken. The search then deepens one level at a time and, when the budget
+ * runs out, the required number is picked from the deepest level completed,
+ * so the harder difficulties come back within a known time. Each completed
+ * level is cached, so later searches of the same board carry on from it.
+ * 
+ * How the GameStates are searched can be chosen for each difficulty, e.g.
+ * sampling for the deepest ones. A value picked from sampled counts is only
+ * accepted once the path the sampler found to it has been replayed and
+ * shown to make it.
+ * 
+ * Analyses can also keep the shortest path found to each value, in a
+ * WitnessIndex of bounded size, so that a hint or proof that a value can be
+ * made is a lookup rather than another search.
+ * 
+ * The time taken by each analysis, and to generate each required number,
+ * is recorded in EngineMetrics.
  *  
  * @author Navid
  *
  */
 public abstract class DifficultyGenerator {
 	
-	private static int requiredNumber;
+	// Maximum number of analyses kept in the cache.
+	private static final int CACHE_SIZE = 32;
+	// Depth an anytime analysis always completes whatever its budget, so
+	// that there are values to pick other than the root's.
+	private static final int MIN_ANYTIME_DEPTH = 2;
+	
+	private static volatile int requiredNumber;
+	private static volatile Exploration exploration = Exploration.PARALLEL;
+	// Most values each analysis keeps a witness path for, 0 for none.
+	private static volatile int witnessLimit = 0;
+	// Explorations chosen for particular difficulties, the others use the
+	// default exploration above.
+	private static final EnumMap<Difficulty, Exploration> explorations =
+			new EnumMap<Difficulty, Exploration>(Difficulty.class);
+	
+	// Runs background generation, created when first needed. A single
+	// thread is enough as the search itself is split across the cores.
+	private static ExecutorService executor;
+	
+	// Analyses for each (root GameState, depth, exploration), least recently
+	// used first so the eldest entry is dropped when the cache is full.
+	private static final LinkedHashMap<AnalysisKey, Analysis> cache =
+			new LinkedHashMap<AnalysisKey, Analysis>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected boolean removeEldestEntry(
+						Map.Entry<AnalysisKey, Analysis> eldest)
+				{
+					return size() > CACHE_SIZE;
+				}
+			};
+	private static long cacheHits = 0;
+	private static long cacheMisses = 0;
 	
 	private DifficultyGenerator(){}
 	
 	public static void generateRequiredNumber(Difficulty dif, GameState gs)
 	{
-		// Get difficulty as defined in the enumeration type.
-		int depth = dif.depth();
-		float fraction = dif.fraction();
+		long start = System.nanoTime();
+		
+		// Count how often each value is reached, walking the GameStates
+		// rather than building a GameTree so memory does not grow with depth.
+		ValueHistogram histogram = analyse(gs, dif.depth(),
+				getExploration(dif), null);
 		
-		// Generate the IntTree by generating the GameTree.
-		Tree<Integer> intTree =
-				GameTree.extractIntTree(new GameTree(gs, depth));
+		requiredNumber = pickRequiredNumber(dif, gs, histogram);
+		EngineMetrics.generated(dif, System.nanoTime() - start);
+	}
+	
+	/**
+	 * Generates a required number on a background thread. The listener is
+	 * told of the progress of the search and of the result, from the
+	 * background thread, and the result is also available through
+	 * getRequiredNumber() once it is done. Cancelling the returned Future
+	 * stops the search, in which case the listener is not told of a result.
+	 * 
+	 * @param dif - The difficulty.
+	 * @param gs - The GameState to generate a number for.
+	 * @param listener - Told of the progress and the result, may be null.
+	 * @return - The required number when it has been generated.
+	 */
+	public static Future<Integer> generateRequiredNumberAsync(Difficulty dif,
+			GameState gs, GenerationListener listener)
+	{
+		return generateRequiredNumberAsync(dif, gs, SearchBudget.UNLIMITED,
+				listener);
+	}
+	
+	/**
+	 * Generates a required number on a background thread, as
+	 * generateRequiredNumberAsync(dif, gs, listener), but picks it from the
+	 * deepest level that can be completed within a budget.
+	 * 
+	 * @param dif - The difficulty.
+	 * @param gs - The GameState to generate a number for.
+	 * @param budget - Limits the states expanded and the time taken.
+	 * @param listener - Told of the progress and the result, may be null.
+	 * @return - The required number when it has been generated.
+	 */
+	public static Future<Integer> generateRequiredNumberAsync(Difficulty dif,
+			GameState gs, SearchBudget budget, GenerationListener listener)
+	{
+		GenerationTask task = new GenerationTask(dif, gs, budget, listener);
+		executor().execute(task);
+		return task;
+	}
+	
+	/**
+	 * Generates a required number from the deepest level that can be
+	 * completed within a budget.
+	 * 
+	 * @param dif - The difficulty.
+	 * @param gs - The GameState to generate a number for.
+	 * @param budget - Limits the states expanded and the time taken.
+	 * @return - The analysis the number was picked from.
+	 */
+	public static AnytimeResult generateRequiredNumberWithin(Difficulty dif,
+			GameState gs, SearchBudget budget)
+	{
+		long start = System.nanoTime();
+		AnytimeResult result = analyseWithin(gs, dif.depth(),
+				getExploration(dif), new SearchMonitor(null, budget), null);
+		requiredNumber = pickRequiredNumber(dif, gs, result.histogram());
+		EngineMetrics.generated(dif, System.nanoTime() - start);
+		return result;
+	}
+	
+	/**
+	 * Generates a required number for a game of its own, within a budget,
+	 * and returns it rather than making it the required number, so that
+	 * games running at the same time do not see each other's numbers.
+	 * 
+	 * @param dif - The difficulty.
+	 * @param gs - The GameState to generate a number for.
+	 * @param budget - Limits the states expanded and the time taken.
+	 * @return - The required number.
+	 */
+	public static int requiredNumberFor(Difficulty dif, GameState gs,
+			SearchBudget budget)
+	{
+		return requiredNumberFor(dif, gs, new SearchMonitor(null, budget));
+	}
+	
+	/**
+	 * Generates a required number for a game of its own, as
+	 * requiredNumberFor(dif, gs, budget), following the search with a
+	 * monitor that holds the budget. Cancelling the monitor from another
+	 * thread stops the search.
+	 * 
+	 * @param dif - The difficulty.
+	 * @param gs - The GameState to generate a number for.
+	 * @param monitor - Follows the search and holds the budget.
+	 * @return - The required number.
+	 * @throws java.util.concurrent.CancellationException - If the monitor
+	 * is cancelled during the search.
+	 */
+	public static int requiredNumberFor(Difficulty dif, GameState gs,
+			SearchMonitor monitor)
+	{
+		return requiredNumberFor(dif, gs, getExploration(dif), monitor);
+	}
+	
+	/**
+	 * Generates a required number for a game of its own, as
+	 * requiredNumberFor(dif, gs, monitor), searching with the exploration
+	 * given rather than the one set for the difficulty, so that a caller
+	 * can choose its own without changing everyone else's.
+	 * 
+	 * @param dif - The difficulty.
+	 * @param gs - The GameState to generate a number for.
+	 * @param e - How to search the GameStates.
+	 * @param monitor - Follows the search and holds the budget.
+	 * @return - The required number.
+	 * @throws java.util.concurrent.CancellationException - If the monitor
+	 * is cancelled during the search.
+	 */
+	public static int requiredNumberFor(Difficulty dif, GameState gs,
+			Exploration e, SearchMonitor monitor)
+	{
+		long start = System.nanoTime();
 		
-		// Get the numbers in the IntTree sorted by frequency
-		// so less frequent first.
-		ArrayList<Integer> sortedByFreq = GameTree.sortByFrequency(
-					intTree.BreadthFirstSearch(depth, intTree));
+		// Without a budget there is no need to deepen gradually.
+		ValueHistogram histogram = monitor.budget().isUnlimited()
+				? analyse(gs, dif.depth(), e, monitor)
+				: analyseWithin(gs, dif.depth(), e, monitor, null).histogram();
+		int n = pickRequiredNumber(dif, gs, histogram);
 		
-		// Remove duplicates.
-		ArrayList<Integer> noDuplicates = new ArrayList<Integer>(
-					new LinkedHashSet<Integer>(sortedByFreq));
+		EngineMetrics.generated(dif, System.nanoTime() - start);
+		return n;
+	}
+	
+	/**
+	 * Counts the values reachable from a GameState by deepening one level at
+	 * a time until the depth asked for is reached or the budget is spent.
+	 * The listener is given the result of each level as it is completed.
+	 * Searches with the default exploration.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to.
+	 * @param budget - Limits the states expanded and the time taken.
+	 * @param listener - Told of each level completed, may be null.
+	 * @return - The counts for the deepest level completed.
+	 */
+	public static AnytimeResult analyseWithin(GameState gs, int depth,
+			SearchBudget budget, AnytimeListener listener)
+	{
+		return analyseWithin(gs, depth, exploration,
+				new SearchMonitor(null, budget), listener);
+	}
+	
+	/**
+	 * Actual implementation of the anytime analysis, the budget is held by
+	 * the monitor.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to.
+	 * @param e - How to search the GameStates.
+	 * @param monitor - Follows the search and holds the budget.
+	 * @param listener - Told of each level completed, may be null.
+	 * @return - The counts for the deepest level completed.
+	 */
+	static AnytimeResult analyseWithin(GameState gs, int depth, Exploration e,
+			SearchMonitor monitor, AnytimeListener listener)
+	{
+		// The first levels are tiny, so they are searched outside the budget.
+		int completed = Math.min(MIN_ANYTIME_DEPTH, depth);
+		AnytimeResult result = new AnytimeResult(
+				analyse(gs, completed, e, null), completed, depth,
+				monitor.nodes(), monitor.elapsedMillis());
+		if(listener != null)
+			listener.depthCompleted(result);
 		
-		// Gets you the most difficult required value if on max difficulty.
-		if(dif.depth() == 10) {
-			requiredNumber = noDuplicates.get(0);
-			return;
+		try {
+			while(completed < depth && !monitor.isOverBudget())
+			{
+				ValueHistogram histogram = analyse(gs, completed + 1, e,
+						monitor);
+				completed++;
+				result = new AnytimeResult(histogram, completed, depth,
+						monitor.nodes(), monitor.elapsedMillis());
+				if(listener != null)
+					listener.depthCompleted(result);
+			}
+		} catch(BudgetExhaustedException ex) {
+			// Out of budget, the result of the last level completed stands.
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Picks a required number of the rarity given by the difficulty.
+	 * 
+	 * @param dif - The difficulty.
+	 * @param gs - The GameState the counts are for.
+	 * @param histogram - The counts of the values reachable.
+	 * @return - The required number.
+	 */
+	private static int pickRequiredNumber(Difficulty dif, GameState gs,
+			ValueHistogram histogram)
+	{
+		long start = System.nanoTime();
+		try {
+			return pickRequiredNumber(dif, gs, histogram,
+					pickRank(dif, histogram.distinct()));
+		} finally {
+			EngineMetrics.phase(EngineMetrics.Phase.SORT,
+					System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * Actual implementation of pickRequiredNumber.
+	 * 
+	 * @param dif - The difficulty.
+	 * @param gs - The GameState the counts are for.
+	 * @param histogram - The counts of the values reachable.
+	 * @param rank - Rank of the value wanted.
+	 * @return - The required number.
+	 */
+	private static int pickRequiredNumber(Difficulty dif, GameState gs,
+			ValueHistogram histogram, int rank)
+	{
+		if(!(histogram instanceof SampledHistogram))
+			return histogram.valueAtRank(rank);
+		
+		// Sampled counts are only estimates, so only accept a value once its
+		// witness path is shown to make it, moving to commoner values if not.
+		SampledHistogram sampled = (SampledHistogram) histogram;
+		for(int r = rank; r < histogram.distinct(); r++)
+		{
+			int value = histogram.valueAtRank(r);
+			if(sampled.verify(gs, value))
+				return value;
 		}
+		throw new IllegalStateException("DifficultyGenerator:" +
+				"pickRequiredNumber(" + dif + "): no value has a valid witness");
+	}
+	
+	/**
+	 * Picks the rank of the required number in the frequency ranking.
+	 * 
+	 * @param dif - The difficulty.
+	 * @param distinct - Number of distinct values reachable.
+	 * @return - The rank, the rarest value has rank 0.
+	 */
+	private static int pickRank(Difficulty dif, int distinct)
+	{
+		// Get difficulty as defined in the enumeration type.
+		float fraction = dif.fraction();
+		
+		// Distinct values are ranked by frequency, so less frequent first.
+		// Gets you the most difficult required value if on max difficulty.
+		if(dif.depth() == 10)
+			return 0;
 		
 		// Use random numbers to allow consecutive games to have different 
 		// required values.
 		Random random = new Random();
 			
-		// Pick a index with an average (Expectation) of 
-		// fraction * noDuplicates.size().
-		int index = (int)(fraction * (float) noDuplicates.size());
-		index = random.nextInt(index) + index/2;
-		requiredNumber = noDuplicates.get(index);
+		// Pick a rank with an average (Expectation) of 
+		// fraction * distinct. A shallow search may have too few values for
+		// that, in which case the rarest is used.
+		int index = (int)(fraction * (float) distinct);
+		if(index == 0)
+			return 0;
+		return random.nextInt(index) + index/2;
+	}
+	
+	/**
+	 * Gets the counts of the values reachable from a GameState using the
+	 * default exploration, from the cache if this GameState and depth have
+	 * been analysed before.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to.
+	 * @return - The counts of each value, which are read-only.
+	 */
+	static ValueHistogram analyse(GameState gs, int depth)
+	{
+		return analyse(gs, depth, exploration, null);
+	}
+	
+	/**
+	 * Gets the counts of the values reachable from a GameState, reporting
+	 * the progress of the search to a monitor if it is not cached. A
+	 * cancelled search is not cached.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to.
+	 * @param e - How to search the GameStates.
+	 * @param monitor - Follows the search, may be null.
+	 * @return - The counts of each value, which are read-only as the same
+	 * histogram is given to every caller while it is cached.
+	 */
+	static ValueHistogram analyse(GameState gs, int depth, Exploration e,
+			SearchMonitor monitor)
+	{
+		// Sampled counts differ from exact ones, so they are cached apart.
+		AnalysisKey key = new AnalysisKey(gs, depth, e);
+		int limit = witnessLimit;
+		
+		synchronized(cache) {
+			Analysis cached = cache.get(key);
+			// An analysis without witnesses, or keeping fewer than are now
+			// wanted, will not do if they are wanted.
+			if(cached != null && (limit == 0 || (cached.witnesses != null &&
+					cached.witnesses.maxEntries() >= limit))) {
+				cacheHits++;
+				return cached.histogram;
+			}
+			cacheMisses++;
+		}
+		
+		WitnessIndex witnesses = limit > 0 ? new WitnessIndex(limit) : null;
+		long start = System.nanoTime();
+		ValueHistogram histogram = e.explore(gs, depth, monitor, witnesses)
+				.makeReadOnly();
+		EngineMetrics.phase(EngineMetrics.Phase.EXTRACT,
+				System.nanoTime() - start);
+		EngineMetrics.histogram(histogram.distinct());
+		
+		synchronized(cache) {
+			cache.put(key, new Analysis(histogram, witnesses));
+		}
+		return histogram;
+	}
+	
+	/**
+	 * Gets the shortest path found to a value by the analysis of a GameState
+	 * for a difficulty. Only analyses made while witnesses are kept, see
+	 * setWitnessLimit(), and still in the cache have paths. A value can be
+	 * made by this path in as few tiles as possible, unless the analysis was
+	 * sampled, in which case it is the shortest the walks found.
+	 * 
+	 * @param gs - The GameState analysed.
+	 * @param dif - The difficulty it was analysed for.
+	 * @param value - The value.
+	 * @return - The packed path, or PackedPath.NONE if none is known.
+	 */
+	public static long getWitness(GameState gs, Difficulty dif, int value)
+	{
+		Exploration e = getExploration(dif);
+		
+		synchronized(cache) {
+			// An anytime analysis may have stopped short of the full depth.
+			for(int depth = dif.depth(); depth > 0; depth--)
+			{
+				Analysis a = cache.get(new AnalysisKey(gs, depth, e));
+				if(a != null && a.witnesses != null) {
+					long path = a.witnesses.witness(value);
+					if(path != PackedPath.NONE)
+						return path;
+				}
+			}
+		}
+		return PackedPath.NONE;
+	}
+	
+	/**
+	 * Sets how many values each analysis keeps the shortest path for. Each
+	 * value kept takes at most about 48 bytes and at most CACHE_SIZE
+	 * analyses are kept, see getWitnessBytes().
+	 * 
+	 * @param maxValues - Most values per analysis, 0 to keep no paths.
+	 */
+	public static void setWitnessLimit(int maxValues)
+	{
+		if(maxValues < 0) {
+			throw new IllegalArgumentException("DifficultyGenerator:" +
+					"setWitnessLimit(" + maxValues + "): must not be negative");
+		}
+		witnessLimit = maxValues;
+	}
+	
+	/**
+	 * Gets how many values each analysis keeps the shortest path for.
+	 * @return - Most values per analysis, 0 if no paths are kept.
+	 */
+	public static int getWitnessLimit(){return witnessLimit;}
+	
+	/**
+	 * Gets the memory used by the witness paths of the cached analyses.
+	 * @return - The number of bytes.
+	 */
+	public static long getWitnessBytes()
+	{
+		long bytes = 0;
+		synchronized(cache) {
+			for(Analysis a : cache.values())
+			{
+				if(a.witnesses != null)
+					bytes += a.witnesses.bytes();
+			}
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Gets the number of values the cached analyses could not keep because
+	 * their witness index was full.
+	 * @return - The number of values dropped.
+	 */
+	public static long getWitnessesDropped()
+	{
+		long dropped = 0;
+		synchronized(cache) {
+			for(Analysis a : cache.values())
+			{
+				if(a.witnesses != null)
+					dropped += a.witnesses.dropped();
+			}
+		}
+		return dropped;
+	}
+	
+	/**
+	 * Removes every analysis from the cache.
+	 */
+	public static void clearCache()
+	{
+		synchronized(cache) {
+			cache.clear();
+		}
+	}
+	
+	/**
+	 * Gets the number of analyses found in the cache.
+	 * @return - The number of cache hits.
+	 */
+	public static long getCacheHits()
+	{
+		synchronized(cache) {
+			return cacheHits;
+		}
+	}
+	
+	/**
+	 * Gets the number of analyses that had to be computed.
+	 * @return - The number of cache misses.
+	 */
+	public static long getCacheMisses()
+	{
+		synchronized(cache) {
+			return cacheMisses;
+		}
+	}
+	
+	/**
+	 * Gets the number of analyses in the cache.
+	 * @return - The cache size.
+	 */
+	public static int getCacheSize()
+	{
+		synchronized(cache) {
+			return cache.size();
+		}
 	}
 	
 	/**
@@ -63,4 +559,175 @@ public abstract class DifficultyGenerator {
 	 * @return - The required value.
 	 */
 	public static int getRequiredNumber(){return requiredNumber;}
+	
+	/**
+	 * Gets how the GameStates are searched by default.
+	 * @return - The default exploration.
+	 */
+	public static Exploration getExploration(){return exploration;}
+	
+	/**
+	 * Sets how the GameStates are searched by default. The exact explorations
+	 * give the same counts so choosing between them only affects the time
+	 * taken.
+	 * @param e - The exploration to use.
+	 */
+	public static void setExploration(Exploration e){exploration = e;}
+	
+	/**
+	 * Gets how the GameStates are searched for a difficulty.
+	 * @param dif - The difficulty.
+	 * @return - The exploration used.
+	 */
+	public static Exploration getExploration(Difficulty dif)
+	{
+		synchronized(explorations) {
+			Exploration e = explorations.get(dif);
+			return e != null ? e : exploration;
+		}
+	}
+	
+	/**
+	 * Sets how the GameStates are searched for a difficulty, e.g. sampling
+	 * for the deepest ones.
+	 * @param dif - The difficulty.
+	 * @param e - The exploration to use, or null for the default.
+	 */
+	public static void setExploration(Difficulty dif, Exploration e)
+	{
+		synchronized(explorations) {
+			if(e == null) {
+				explorations.remove(dif);
+			} else {
+				explorations.put(dif, e);
+			}
+		}
+	}
+	
+	/**
+	 * Gets the executor used for background generation.
+	 * @return - The executor.
+	 */
+	private static synchronized ExecutorService executor()
+	{
+		if(executor == null) {
+			executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r)
+				{
+					// Daemon so that a search does not keep the game open.
+					Thread t = new Thread(r, "DifficultyGenerator");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return executor;
+	}
+	
+	/**
+	 * Generates a required number in the background. Cancelling it also
+	 * cancels the search, and the listener is told of the outcome when it
+	 * is done.
+	 */
+	private static class GenerationTask extends FutureTask<Integer> {
+		
+		private final SearchMonitor monitor;
+		private final GenerationListener listener;
+		
+		GenerationTask(Difficulty dif, GameState gs, SearchBudget budget,
+				GenerationListener listener)
+		{
+			this(dif, gs, new SearchMonitor(listener, budget), listener);
+		}
+		
+		private GenerationTask(final Difficulty dif, final GameState gs,
+				final SearchMonitor monitor, GenerationListener listener)
+		{
+			super(new Callable<Integer>() {
+				@Override
+				public Integer call()
+				{
+					return requiredNumberFor(dif, gs, monitor);
+				}
+			});
+			this.monitor = monitor;
+			this.listener = listener;
+		}
+		
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning)
+		{
+			// The search checks the monitor rather than being interrupted.
+			monitor.cancel();
+			return super.cancel(mayInterruptIfRunning);
+		}
+		
+		@Override
+		protected void done()
+		{
+			if(isCancelled())
+				return;
+			
+			try {
+				int n = get();
+				requiredNumber = n;
+				if(listener != null)
+					listener.generated(n);
+			} catch(ExecutionException e) {
+				if(listener != null)
+					listener.failed(e.getCause());
+			} catch(InterruptedException e) {
+				// get() does not block once the task is done.
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * The value counts found by an analysis and the paths it kept, if any.
+	 */
+	private static class Analysis {
+		private final ValueHistogram histogram;
+		private final WitnessIndex witnesses;
+		
+		Analysis(ValueHistogram histogram, WitnessIndex witnesses)
+		{
+			this.histogram = histogram;
+			this.witnesses = witnesses;
+		}
+	}
+	
+	/**
+	 * Identifies an analysis by the GameState it starts from, which compares
+	 * the contents of the board, the depth searched and how it was searched.
+	 */
+	private static class AnalysisKey {
+		private final GameState root;
+		private final int depth;
+		private final Exploration exploration;
+		
+		AnalysisKey(GameState root, int depth, Exploration exploration)
+		{
+			this.root = root;
+			this.depth = depth;
+			this.exploration = exploration;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return 31 * (31 * root.hashCode() + depth) + exploration.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(!(obj instanceof AnalysisKey))
+				return false;
+			AnalysisKey other = (AnalysisKey) obj;
+			return depth == other.depth && exploration == other.exploration &&
+					root.equals(other.root);
+		}
+	}
 }
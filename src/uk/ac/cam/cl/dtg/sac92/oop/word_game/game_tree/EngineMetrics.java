@@ -0,0 +1,317 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Collects metrics from the analysis engine and publishes them through JMX,
+ * so that a slow required number can be put down to the size of the search,
+ * the cache or something else, e.g. by watching it in JConsole.
+ * 
+ * The searches count the states they expand at each level locally and
+ * report them once per walk or per tree rather than per state, to striped
+ * counters, so the metrics cost next to nothing and are always on. There
+ * is one set of metrics for the whole engine, published under NAME by
+ * register().
+ * 
+ * @author Navid
+ *
+ */
+public class EngineMetrics implements EngineMetricsMBean {
+
+	public static final String NAME =
+			"uk.ac.cam.cl.dtg.sac92.oop.word_game:type=EngineMetrics";
+
+	// Levels counted separately, deeper ones are added to the last.
+	private static final int LEVELS = 16;
+
+	private static final EngineMetrics metrics = new EngineMetrics();
+
+	/**
+	 * The parts of an analysis that are timed.
+	 */
+	enum Phase {
+		// Building a GameTree.
+		BUILD,
+		// Counting the values reachable, by a search or from a GameTree.
+		EXTRACT,
+		// A breadth first traversal of a Tree.
+		BFS,
+		// Ranking the values by frequency to pick a required number.
+		SORT
+	}
+
+	private final StripedCounter[] expandedNodes = counters(LEVELS);
+	private final StripedCounter[] treeNodes = counters(LEVELS);
+	private final StripedCounter statesCreated = new StripedCounter();
+	private final StripedCounter[] phaseNanos =
+			counters(Phase.values().length);
+	private final StripedCounter[] phaseCounts =
+			counters(Phase.values().length);
+	private final LatencyRecorder[] latencies =
+			new LatencyRecorder[Difficulty.values().length];
+	private final AtomicInteger maxHistogram = new AtomicInteger();
+	private volatile int lastHistogram = 0;
+
+	private EngineMetrics()
+	{
+		for(int i = 0; i < latencies.length; i++)
+			latencies[i] = new LatencyRecorder();
+	}
+
+	/**
+	 * Gets the metrics of the engine.
+	 * @return - The metrics.
+	 */
+	public static EngineMetrics get() {return metrics;}
+
+	/**
+	 * Publishes the metrics to the platform MBean server, if they have not
+	 * been already.
+	 */
+	public static void register()
+	{
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+					new ObjectName(NAME));
+		} catch(InstanceAlreadyExistsException e) {
+			// Already published.
+		} catch(JMException e) {
+			throw new IllegalStateException("EngineMetrics:register(): " +
+					e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Records states expanded by a search at one level.
+	 * @param level - Their level in the search, the root is level 0.
+	 * @param states - The number of states.
+	 */
+	static void expanded(int level, long states)
+	{
+		metrics.expandedNodes[level(level)].add(states);
+	}
+
+	/**
+	 * Records the states expanded by a search at each level.
+	 * @param states - The number of states, indexed by level.
+	 */
+	static void expanded(long[] states)
+	{
+		for(int level = 0; level < states.length; level++)
+		{
+			if(states[level] != 0)
+				expanded(level, states[level]);
+		}
+	}
+
+	/**
+	 * Records nodes built for a tree.
+	 * @param level - Their level in the tree, the root is level 0.
+	 * @param nodes - The number of nodes.
+	 */
+	static void treeNodes(int level, long nodes)
+	{
+		metrics.treeNodes[level(level)].add(nodes);
+	}
+
+	/**
+	 * Records GameStates created by making moves.
+	 * @param states - The number of states.
+	 */
+	static void statesCreated(long states)
+	{
+		metrics.statesCreated.add(states);
+	}
+
+	/**
+	 * Records the size of a histogram that has been computed.
+	 * @param distinct - Its number of distinct values.
+	 */
+	static void histogram(int distinct)
+	{
+		metrics.lastHistogram = distinct;
+
+		int max = metrics.maxHistogram.get();
+		while(distinct > max &&
+				!metrics.maxHistogram.compareAndSet(max, distinct))
+			max = metrics.maxHistogram.get();
+	}
+
+	/**
+	 * Records the time taken by a phase.
+	 * @param phase - The phase.
+	 * @param nanos - The time in nanoseconds.
+	 */
+	static void phase(Phase phase, long nanos)
+	{
+		metrics.phaseNanos[phase.ordinal()].add(nanos);
+		metrics.phaseCounts[phase.ordinal()].increment();
+	}
+
+	/**
+	 * Records the time taken to generate a required number.
+	 * @param dif - The difficulty.
+	 * @param nanos - The time in nanoseconds.
+	 */
+	static void generated(Difficulty dif, long nanos)
+	{
+		metrics.latencies[dif.ordinal()].record(nanos);
+	}
+
+	@Override
+	public long[] getNodesExpandedPerLevel() {return sums(expandedNodes);}
+
+	@Override
+	public long[] getTreeNodesPerLevel() {return sums(treeNodes);}
+
+	@Override
+	public long getStatesCreated() {return statesCreated.sum();}
+
+	@Override
+	public int getLastHistogramSize() {return lastHistogram;}
+
+	@Override
+	public int getMaxHistogramSize() {return maxHistogram.get();}
+
+	@Override
+	public double[] getPhaseMillis()
+	{
+		long[] nanos = sums(phaseNanos);
+		double[] millis = new double[nanos.length];
+		for(int i = 0; i < nanos.length; i++)
+			millis[i] = nanos[i] / 1e6;
+		return millis;
+	}
+
+	@Override
+	public long[] getPhaseCounts() {return sums(phaseCounts);}
+
+	@Override
+	public String[] getPhases()
+	{
+		String[] names = new String[Phase.values().length];
+		for(Phase p : Phase.values())
+			names[p.ordinal()] = p.name();
+		return names;
+	}
+
+	@Override
+	public String[] getGenerationLatencies()
+	{
+		String[] lines = new String[latencies.length];
+		for(Difficulty dif : Difficulty.values())
+		{
+			LatencyRecorder l = latencies[dif.ordinal()];
+			lines[dif.ordinal()] = String.format("%s count=%d last=%.1f " +
+					"mean=%.1f p50=%.1f p90=%.1f p99=%.1f max=%.1f", dif,
+					l.count(), l.lastMillis(), l.meanMillis(),
+					l.percentileMillis(0.5), l.percentileMillis(0.9),
+					l.percentileMillis(0.99), l.maxMillis());
+		}
+		return lines;
+	}
+
+	@Override
+	public double getGenerationLatency(String difficulty, double percentile)
+	{
+		return latencies[Difficulty.valueOf(difficulty).ordinal()]
+				.percentileMillis(percentile);
+	}
+
+	@Override
+	public double getLastGenerationLatency(String difficulty)
+	{
+		return latencies[Difficulty.valueOf(difficulty).ordinal()].lastMillis();
+	}
+
+	@Override
+	public long getCacheHits() {return DifficultyGenerator.getCacheHits();}
+
+	@Override
+	public long getCacheMisses() {return DifficultyGenerator.getCacheMisses();}
+
+	@Override
+	public int getCacheSize() {return DifficultyGenerator.getCacheSize();}
+
+	@Override
+	public long getWitnessBytes()
+	{
+		return DifficultyGenerator.getWitnessBytes();
+	}
+
+	@Override
+	public void reset()
+	{
+		for(StripedCounter c : expandedNodes)
+			c.reset();
+		for(StripedCounter c : treeNodes)
+			c.reset();
+		for(StripedCounter c : phaseNanos)
+			c.reset();
+		for(StripedCounter c : phaseCounts)
+			c.reset();
+		for(LatencyRecorder l : latencies)
+			l.reset();
+		statesCreated.reset();
+		maxHistogram.set(0);
+		lastHistogram = 0;
+	}
+
+	private static int level(int level)
+	{
+		return Math.min(level, LEVELS - 1);
+	}
+
+	private static StripedCounter[] counters(int n)
+	{
+		StripedCounter[] counters = new StripedCounter[n];
+		for(int i = 0; i < n; i++)
+			counters[i] = new StripedCounter();
+		return counters;
+	}
+
+	private static long[] sums(StripedCounter[] counters)
+	{
+		long[] sums = new long[counters.length];
+		for(int i = 0; i < counters.length; i++)
+			sums[i] = counters[i].sum();
+		return sums;
+	}
+
+	/**
+	 * Counts the states a walk visits at each level, passing them on to
+	 * another visitor, so they can be recorded once the walk is over.
+	 */
+	static class LevelCounter implements ValueVisitor {
+
+		private final ValueVisitor visitor;
+		private final long[] states = new long[LEVELS];
+
+		LevelCounter(ValueVisitor visitor)
+		{
+			this.visitor = visitor;
+		}
+
+		@Override
+		public void visit(int value, int depth)
+		{
+			visitor.visit(value, depth);
+			states[level(depth)]++;
+		}
+
+		/**
+		 * Records the states counted so far and starts again from zero.
+		 */
+		void report()
+		{
+			expanded(states);
+			Arrays.fill(states, 0);
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * The metrics of the analysis engine published through JMX, see
+ * EngineMetrics. Times are in milliseconds.
+ * 
+ * @author Navid
+ *
+ */
+public interface EngineMetricsMBean {
+
+	/**
+	 * Gets the states expanded by the searches of analyses, by their level
+	 * in the search. States deeper than the last level are counted in it.
+	 * @return - The states for each level, the root is level 0.
+	 */
+	long[] getNodesExpandedPerLevel();
+
+	/**
+	 * Gets the nodes built by GameTrees, by their level in the tree.
+	 * @return - The nodes for each level, the root is level 0.
+	 */
+	long[] getTreeNodesPerLevel();
+
+	/**
+	 * Gets the number of GameStates created by making moves.
+	 * @return - The number of states.
+	 */
+	long getStatesCreated();
+
+	/**
+	 * Gets the number of distinct values in the last histogram computed.
+	 * @return - The histogram size.
+	 */
+	int getLastHistogramSize();
+
+	/**
+	 * Gets the largest number of distinct values in a histogram computed.
+	 * @return - The histogram size.
+	 */
+	int getMaxHistogramSize();
+
+	/**
+	 * Gets the total time spent in each phase, see getPhases().
+	 * @return - The times in the same order as the phases.
+	 */
+	double[] getPhaseMillis();
+
+	/**
+	 * Gets the number of times each phase has run, see getPhases().
+	 * @return - The counts in the same order as the phases.
+	 */
+	long[] getPhaseCounts();
+
+	/**
+	 * Gets the names of the phases.
+	 * @return - The names.
+	 */
+	String[] getPhases();
+
+	/**
+	 * Gets a line for each Difficulty summarising the time taken to
+	 * generate a required number: the count, last, mean, 50th, 90th and
+	 * 99th percentile and longest.
+	 * @return - The summaries.
+	 */
+	String[] getGenerationLatencies();
+
+	/**
+	 * Gets a percentile of the time taken to generate a required number.
+	 * @param difficulty - Name of the Difficulty, e.g. LEVEL_3.
+	 * @param percentile - The percentile, from 0 to 1.
+	 * @return - The time.
+	 */
+	double getGenerationLatency(String difficulty, double percentile);
+
+	/**
+	 * Gets the last time taken to generate a required number.
+	 * @param difficulty - Name of the Difficulty, e.g. LEVEL_3.
+	 * @return - The time.
+	 */
+	double getLastGenerationLatency(String difficulty);
+
+	/**
+	 * Gets the number of analyses found in the cache.
+	 * @return - The number of hits.
+	 */
+	long getCacheHits();
+
+	/**
+	 * Gets the number of analyses that had to be computed.
+	 * @return - The number of misses.
+	 */
+	long getCacheMisses();
+
+	/**
+	 * Gets the number of analyses in the cache.
+	 * @return - The cache size.
+	 */
+	int getCacheSize();
+
+	/**
+	 * Gets the memory used by the witness paths of the cached analyses.
+	 * @return - The number of bytes.
+	 */
+	long getWitnessBytes();
+
+	/**
+	 * Sets every metric back to zero, other than those of the cache.
+	 */
+	void reset();
+}
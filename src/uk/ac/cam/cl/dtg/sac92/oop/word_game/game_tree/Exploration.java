@@ -0,0 +1,111 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+import java.util.Random;
+
+/**
+ * The ways DifficultyGenerator can search the GameStates reachable from the
+ * current one. SERIAL, PARALLEL and TRANSPOSITION give the same counts, they
+ * only differ in how the work is done. SAMPLED only estimates the counts,
+ * which makes it much faster for deep searches.
+ * 
+ * Each can also fill a WitnessIndex with the shortest path found to each
+ * value. The exact explorations find the shortest paths, SAMPLED gives the
+ * shortest paths its walks happened to take.
+ * 
+ * @author Navid
+ *
+ */
+public enum Exploration {
+	// Walk the states on the calling thread.
+	SERIAL {
+		@Override
+		ValueHistogram explore(GameState gs, int depth,
+				SearchMonitor monitor, WitnessIndex witnesses)
+		{
+			return ValueEnumerator.histogram(gs, depth, monitor, witnesses);
+		}
+	},
+	// Split the walk across the cores with fork/join.
+	PARALLEL {
+		@Override
+		ValueHistogram explore(GameState gs, int depth,
+				SearchMonitor monitor, WitnessIndex witnesses)
+		{
+			return ValueEnumerator.parallelHistogram(gs, depth, monitor,
+					witnesses);
+		}
+	},
+	// Merge the states that different paths lead to, see TranspositionSearch.
+	// Merged states have no single path, so when paths are wanted the states
+	// are walked as PARALLEL does.
+	TRANSPOSITION {
+		@Override
+		ValueHistogram explore(GameState gs, int depth,
+				SearchMonitor monitor, WitnessIndex witnesses)
+		{
+			if(witnesses != null)
+				return PARALLEL.explore(gs, depth, monitor, witnesses);
+			return TranspositionSearch.shared().histogram(gs, depth, monitor);
+		}
+	},
+	// Estimate the counts from random walks, see MonteCarloSampler.
+	SAMPLED {
+		@Override
+		ValueHistogram explore(GameState gs, int depth,
+				SearchMonitor monitor, WitnessIndex witnesses)
+		{
+			SampledHistogram sampled = new MonteCarloSampler(
+					MonteCarloSampler.DEFAULT_SAMPLES, new Random())
+					.sample(gs, depth, monitor);
+
+			if(witnesses != null) {
+				for(int value : sampled.rankedValues())
+					witnesses.offer(value, sampled.witness(value));
+			}
+			return sampled;
+		}
+	};
+	
+	/**
+	 * Counts how often each value is reached down to a specified depth.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, counting the root as one level.
+	 * @return - The counts of each value.
+	 */
+	ValueHistogram explore(GameState gs, int depth)
+	{
+		return explore(gs, depth, null, null);
+	}
+	
+	/**
+	 * Counts how often each value is reached down to a specified depth,
+	 * reporting to a monitor as it goes.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, counting the root as one level.
+	 * @param monitor - Follows the search, may be null.
+	 * @return - The counts of each value.
+	 * @throws java.util.concurrent.CancellationException - If the monitor
+	 * is cancelled during the search.
+	 */
+	ValueHistogram explore(GameState gs, int depth, SearchMonitor monitor)
+	{
+		return explore(gs, depth, monitor, null);
+	}
+	
+	/**
+	 * Counts how often each value is reached down to a specified depth,
+	 * reporting to a monitor as it goes and keeping a path to each value.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, counting the root as one level.
+	 * @param monitor - Follows the search, may be null.
+	 * @param witnesses - Receives the paths, may be null.
+	 * @return - The counts of each value.
+	 * @throws java.util.concurrent.CancellationException - If the monitor
+	 * is cancelled during the search.
+	 */
+	abstract ValueHistogram explore(GameState gs, int depth,
+			SearchMonitor monitor, WitnessIndex witnesses);
+}
@@ -1,6 +1,5 @@
 package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
 
-import java.awt.Point;
 import java.util.ArrayList;
 
 import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Grid;
@@ -8,130 +7,282 @@ import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Tile;
 
 /**
  * Represents the state of a game board. The main method it provides is used to
- * generate GameTrees. 
- * 
+ * generate GameTrees.
+ *
+ * A GameState is deliberately small: every state reached from the same grid
+ * shares one immutable Board, the tiles on the path are held as a mask of
+ * visited cells and only the last cell and the running value of the path are
+ * kept. Making a move therefore allocates a single object rather than cloning
+ * the grid and the path.
+ *
+ * The running value is updated as each move is made, so the value of a
+ * child is worked out from its parent in constant time. When the path ends
+ * in an operator that operator is pending, it is the letter in the last cell
+ * so it does not need a field of its own.
+ *
  * @author navid
  *
  */
 public class GameState {
-	private Grid grid;
-	private ArrayList<Tile> path;
-	
+
+	// Used as the last cell when nothing is on the path.
+	static final int NO_CELL = -1;
+
+	private final Board board;
+	private final long visited;
+	private final int lastCell;
+	private final int accumulator;
+
 	/**
-	 * 	Constructor of GameState. Works how you would expect.
-	 *  
+	 * 	Constructor of GameState for a grid with nothing on the path.
+	 *
+	 * @param grid - Current grid.
+	 */
+	public GameState(Grid grid)
+	{
+		this(new Board(grid), 0L, NO_CELL, 0);
+	}
+
+	/**
+	 * 	Constructor of GameState for a grid with a path already on it.
+	 *
 	 * @param grid - Current grid.
 	 * @param path - Current path.
 	 */
 	public GameState(Grid grid, ArrayList<Tile> path)
 	{
-		this.grid = grid;
-		this.path = path;
+		GameState gs = new GameState(grid);
+
+		// Replay the path one move at a time to get the visited cells, the
+		// last cell and the value.
+		for(Tile t : path)
+			gs = gs.play(grid.cellOf(t));
+
+		this.board = gs.board;
+		this.visited = gs.visited;
+		this.lastCell = gs.lastCell;
+		this.accumulator = gs.accumulator;
+	}
+
+	/**
+	 * Constructor used when making moves.
+	 *
+	 * @param board - Shared board.
+	 * @param visited - Mask of the cells on the path.
+	 * @param lastCell - Last cell on the path or NO_CELL.
+	 * @param accumulator - Value of the path.
+	 */
+	GameState(Board board, long visited, int lastCell, int accumulator)
+	{
+		this.board = board;
+		this.visited = visited;
+		this.lastCell = lastCell;
+		this.accumulator = accumulator;
 	}
-	
+
 	/**
-	 * Generate an ArrayList of all the possible GameStates reachable in one 
+	 * Generate an ArrayList of all the possible GameStates reachable in one
 	 * move from a specified GameState.
-	 * 
+	 *
 	 * @param gs - Given GameState
 	 * @return - All possible GameStates reachable in one move from gs.
 	 */
 	static ArrayList<GameState> nextGameStates(GameState gs)
 	{
 		ArrayList<GameState> nextGameStates = new ArrayList<GameState>();
-		ArrayList<Grid> clonedGrids = new ArrayList<Grid>();
-		ArrayList<Tile> potentialMoves = new ArrayList<Tile>();
-		
-		int pathLength = gs.getPath().size();
-		// This is the tile we have to move from.
-		Tile lastTile = gs.getPath().get(pathLength-1);
-		
-		int movesLength = 0;
-		
-		Point currentPoint = new Point();
-		currentPoint = gs.getGrid().positionOf(lastTile);
-	
-		// For each tile in the grid in gs. 
-		for(int x = 0; x < gs.getGrid().width(); x++)
-		{
-			for(int y = 0; y < gs.getGrid().height(); y++)
-			{
-				// Get the tile at that position.
-				Point p = new Point(x,y);
-				Tile gridTile = gs.getGrid().tileAt(p);
-				
-				/* We need to satisfy four conditions for it to be a valid move
-				 * -The tiles have to be adjacent (isNeighbour)
-				 * -The gridTile needs to be inactive (checkActive)
-				 * -Both the gridTile and the lastTile must not both have an 
-				 *  operator or number (isOperator !=...)
-				 * -The gridTile cannot be the same as the lastTile (p.x == ..)
-				 */ 
-				if((Grid.isNeighbour(lastTile, gridTile, gs.getGrid())) &&
-				   (!gridTile.checkActive()) && 
-				   (gridTile.isOperator() != lastTile.isOperator())) {
-						if((p.x == currentPoint.x) && (p.y == currentPoint.y))
-							continue;
-						potentialMoves.add(gridTile);
-					}	
-			}
-		}
-		
-		movesLength = potentialMoves.size();
-		
-		// For each potential move. 
-		for(int i = 0; i < movesLength; i++) 
+
+		// Visit each set bit of the moves mask, lowest cell first.
+		for(long moves = gs.moves(); moves != 0; moves &= moves - 1)
+			nextGameStates.add(gs.play(Long.numberOfTrailingZeros(moves)));
+
+		return nextGameStates;
+	}
+
+	/**
+	 * Calculates the mask of cells that can be moved to from this state.
+	 *
+	 * @return - Mask of the valid moves.
+	 */
+	long moves()
+	{
+		return moves(board, visited, lastCell);
+	}
+
+	/**
+	 * Makes a move, the move is assumed to be valid.
+	 *
+	 * @param cell - The cell to move to.
+	 * @return - The resulting GameState.
+	 */
+	GameState play(int cell)
+	{
+		return new GameState(board, visited | (1L << cell), cell,
+				valueAfter(board, lastCell, accumulator, cell));
+	}
+
+	/**
+	 * Calculates the mask of cells that can be moved to from a state given
+	 * as its parts, so that searches can avoid creating GameStates.
+	 *
+	 * We need to satisfy three conditions for it to be a valid move
+	 * -The cells have to be adjacent (neighbours), apart from the first move
+	 * -The cell cannot already be on the path (visited)
+	 * -The cell and the last cell must not both have an operator or number,
+	 *  and the first move has to be a number
+	 *
+	 * @param board - The board.
+	 * @param visited - Mask of the cells on the path.
+	 * @param lastCell - Last cell on the path or NO_CELL.
+	 * @return - Mask of the valid moves.
+	 */
+	static long moves(Board board, long visited, int lastCell)
+	{
+		if(lastCell == NO_CELL)
+			return board.numbers() & ~visited;
+
+		long candidates = board.neighbours(lastCell) & ~visited;
+		return board.isOperator(lastCell) ? candidates & board.numbers()
+				: candidates & board.operators();
+	}
+
+	/**
+	 * Calculates the value of a path after a move, the move is assumed to
+	 * be valid.
+	 *
+	 * @param board - The board.
+	 * @param lastCell - Last cell on the path or NO_CELL.
+	 * @param accumulator - Value of the path.
+	 * @param cell - The cell to move to.
+	 * @return - The value after the move.
+	 */
+	static int valueAfter(Board board, int lastCell, int accumulator, int cell)
+	{
+		if(lastCell == NO_CELL)
+			return board.digit(cell);
+
+		// A number applies the pending operator to the value, an operator
+		// leaves the value as it is until the next number.
+		if(!board.isOperator(cell))
+			return apply(accumulator, pendingOperator(board, lastCell),
+					board.digit(cell));
+
+		return accumulator;
+	}
+
+	/**
+	 * Applies an operator to the accumulator and a number.
+	 *
+	 * @param accumulator - Value so far.
+	 * @param operator - The operator.
+	 * @param number - The number.
+	 * @return - The new value.
+	 */
+	static int apply(int accumulator, char operator, int number)
+	{
+		switch(operator)
 		{
-			// Clone the potential tile/move.
-			Tile potentialTile = potentialMoves.get(i);
-			Tile clone = (Tile)potentialTile.clone();
-			clone.active(true);
-			Point p = new Point();
-			
-			p = gs.getGrid().positionOf(potentialTile);
-			
-			// Clone the old grids.
-			clonedGrids.add((Grid)gs.getGrid().clone());
-			
-			ArrayList<Tile> newPath = new ArrayList<Tile>();
-			
-			// Clone the old path to the new path.
-			for(Tile t : gs.getPath())
-				newPath.add((Tile)t.clone());
-			
-			// Add on the new move.
-			newPath.add(clone);
-			
-			
-			// Ensure the last item in the path has the same reference as the
-			// corresponding item on the grid, this ensures positionOf works.
-			clonedGrids.get(i).setTileAt(p, clone);
-			
-			nextGameStates.add(new GameState(clonedGrids.get(i), newPath));
+		case '*':
+			return accumulator * number;
+		case '%':
+			// Catching mod 0 to avoid ArithmeticException.
+			return number == 0 ? 0 : accumulator % number;
+		case '+':
+			return accumulator + number;
+		case '-':
+			return accumulator - number;
 		}
-		
-		return nextGameStates;
+
+		return accumulator;
+	}
+
+	/**
+	 * Gets the board.
+	 *
+	 * @return - The board.
+	 */
+	Board getBoard()
+	{
+		return board;
 	}
 
 	/**
-	 * Gets the path.
-	 * 
-	 * @return - The path.
+	 * Gets the mask of the cells on the path.
+	 *
+	 * @return - The visited mask.
 	 */
-	ArrayList<Tile> getPath()
+	long getVisited()
 	{
-		return path;
+		return visited;
 	}
-	
-	
+
 	/**
-	 * Gets the grid.
-	 * 
-	 * @return - The grid.
+	 * Gets the last cell on the path.
+	 *
+	 * @return - The last cell, or NO_CELL if the path is empty.
 	 */
-	Grid getGrid()
+	int getLastCell()
 	{
-		return grid;
+		return lastCell;
+	}
+
+	/**
+	 * Gets the value of the path.
+	 *
+	 * @return - The value.
+	 */
+	public int getAccumulator()
+	{
+		return accumulator;
+	}
+
+	/**
+	 * Gets the operator waiting to be applied to the next number.
+	 *
+	 * @return - The operator, or 0 if the path does not end in one.
+	 */
+	public char getPendingOperator()
+	{
+		return pendingOperator(board, lastCell);
+	}
+
+	/**
+	 * Gets the operator waiting to be applied to the next number for a state
+	 * given as its parts.
+	 *
+	 * @param board - The board.
+	 * @param lastCell - Last cell on the path or NO_CELL.
+	 * @return - The operator, or 0 if the path does not end in one.
+	 */
+	static char pendingOperator(Board board, int lastCell)
+	{
+		if(lastCell == NO_CELL || !board.isOperator(lastCell))
+			return 0;
+		return board.letter(lastCell);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = board.hashCode();
+		result = prime * result + (int)(visited ^ (visited >>> 32));
+		result = prime * result + lastCell;
+		result = prime * result + accumulator;
+		return result;
+	}
+
+	/**
+	 * GameStates are equal when they have the same board contents, visited
+	 * cells, last cell and value, so they have the same future moves.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof GameState))
+			return false;
+		GameState other = (GameState) obj;
+		return visited == other.visited && lastCell == other.lastCell &&
+				accumulator == other.accumulator && board.equals(other.board);
 	}
 
 }
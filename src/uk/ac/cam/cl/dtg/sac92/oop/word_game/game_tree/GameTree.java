@@ -1,17 +1,17 @@
 package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
 
-import java.awt.Point;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-
-import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Grid;
-import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Tile;
 
 /**
  * Represents potential moves from the GameState stored in the root node as a
  * tree and provides various methods to construct and process this tree.
  * 
+ * The tree is either built eagerly, down to the requested depth, or lazily,
+ * in which case each node generates its children when they are first
+ * accessed. A lazy tree walked with visitValues releases each subtree after
+ * visiting it, so only the nodes on the current path and their siblings are
+ * held in memory.
+ * 
  * @author navid
  *
  */
@@ -25,18 +25,47 @@ public class GameTree extends Tree<GameState> {
 	 * @param depth - Depth to build to.
 	 */
 	public GameTree(GameState gs, int depth) {
-		super(gs);
-		Node<GameState> root = this.getRoot();
-		ArrayList<Node<GameState>> children = new ArrayList<Node<GameState>>();
-		
-		// Special case for initial states. 
-		children = initialStates(root.getValue());
-		root.addChildren(children);
+		this(gs, depth, false);
+	}
+	
+	/**
+	 * Constructor for GameTree, builds a tree of a specified depth from the 
+	 * given GameState either eagerly or lazily.
+	 * 
+	 * @param gs - Initial GameState.
+	 * @param depth - Depth to build to.
+	 * @param lazy - If true nodes are generated when first accessed.
+	 */
+	public GameTree(GameState gs, int depth, boolean lazy) {
+		super(lazy ? lazyRoot(gs, depth) : new Node<GameState>(gs));
+		
+		// Construct the tree, note depth-1 is due to the root already being
+		// the top level of the tree.
+		if(!lazy) {
+			long start = System.nanoTime();
+			buildTree(this.getRoot(), depth-1);
+			EngineMetrics.phase(EngineMetrics.Phase.BUILD,
+					System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * Creates the root of a lazy tree. Each level of the tree has its own
+	 * generator which knows the generator for the level below, the last
+	 * level has none so its nodes are leaves.
+	 * 
+	 * @param gs - Initial GameState.
+	 * @param depth - Depth of the tree.
+	 * @return - The root node.
+	 */
+	private static Node<GameState> lazyRoot(GameState gs, int depth)
+	{
+		MoveGenerator generator = null;
+		for(int i = depth - 1; i >= 1; i--)
+			generator = new MoveGenerator(generator, i);
 		
-		// Construct the tree, note depth-2 is due to us already having the top
-		// two levels of the tree built, i.e. root-children. 
-		for(Node<GameState> n : children)
-			buildTree(n, depth-2);
+		EngineMetrics.treeNodes(0, 1);
+		return new Node<GameState>(gs, generator);
 	}
 	
 	/**
@@ -47,58 +76,45 @@ public class GameTree extends Tree<GameState> {
 	 */
 	public static void buildTree(Node<GameState> node, int depth)
 	{
-		if(depth == 0)
+		// Count the nodes at each level to report once the tree is built.
+		long[] nodes = new long[Math.max(depth, 0) + 1];
+		nodes[0] = 1;
+		buildTree(node, depth, 1, nodes);
+		
+		// Every node below the root is a GameState created by a move.
+		long created = 0;
+		for(int level = 0; level < nodes.length; level++)
+		{
+			EngineMetrics.treeNodes(level, nodes[level]);
+			if(level > 0)
+				created += nodes[level];
+		}
+		EngineMetrics.statesCreated(created);
+	}
+	
+	/**
+	 * Actual implementation of buildTree.
+	 * 
+	 * @param node - GameState to build from.
+	 * @param depth - Depth required.
+	 * @param level - Level of the children, below the node built from.
+	 * @param nodes - Number of nodes built at each level.
+	 */
+	private static void buildTree(Node<GameState> node, int depth, int level,
+			long[] nodes)
+	{
+		if(depth <= 0)
 			return;
 		
 		// Calculate the next GameStates from this node and add as children.
 		node.addChildren(wrapInNodes(
 				GameState.nextGameStates(node.getValue())));
+		nodes[level] += node.getChildren().size();
 		// Build a tree of one less depth for each of the children.
 		for(Node<GameState> n : node.getChildren())
-			buildTree(n, depth-1);
+			buildTree(n, depth-1, level+1, nodes);
 	}
 	
-	/**
-	 * Generates all the possible GameStates at the start of a game, i.e. all 
-	 * the tiles that do not hold operators are potential first moves.
-	 *  
-	 * @param gs - The initial GameState to work from (zero items on the path).
-	 * @return - The array of initial GameStates.
-	 */
-	private static ArrayList<Node<GameState>> initialStates(GameState gs)
-	{
-		ArrayList<Node<GameState>> initialStates = 
-				new ArrayList<Node<GameState>>();
-		Grid grid = gs.getGrid();
-	
-		// For each tile in the grid.
-		for(int y = 0; y < grid.height(); y++)
-		{
-			for(int x = 0; x < grid.width(); x++)
-			{
-				Point p = new Point(x,y);
-				Tile t = (Tile)grid.tileAt(p).clone();
-				// If it is not an operator it is a viable first move.
-				if(!t.isOperator())
-				{
-					Grid newGrid = (Grid)gs.getGrid().clone();
-					ArrayList<Tile> newPath = new ArrayList<Tile>();
-					
-					newPath.add(t);
-					t.active(true);
-					
-					// Required as Grid.positionOf requires reference equality.
-					newGrid.setTileAt(p, t);
-					
-					// Add the new GameState.
-					initialStates.add(new Node<GameState>(
-							new GameState(newGrid, newPath)));
-				}
-			}
-		}
-		
-		return initialStates;
-	}
 	/**
 	 * Converts an ArrayList of GameStates into a ArrayList of Nodes of
 	 * GameStates. Just puts each GameState into a Node<GameState>. 
@@ -118,153 +134,67 @@ public class GameTree extends Tree<GameState> {
 	}
 	
 	/**
-	 * Turns a gameTree into a tree of integers based on the values of the path
-	 * at each node of the gameTree.
+	 * Reports the value of the path at each node of the tree, with its depth,
+	 * to a visitor. Each GameState carries its value so no tree of integers
+	 * needs to be built.
 	 * 
-	 * @param gt - GameTree to convert.
-	 * @return - Converted Integer Tree.
+	 * @param visitor - Receives each value and its depth.
 	 */
-	public static Tree<Integer> extractIntTree(GameTree gt)
+	public void visitValues(ValueVisitor visitor)
 	{
-		Tree<Integer> intTree = new Tree<Integer>(0);
-		// This function traverses the entire GameTree and constructs intTree.
-		gameNodesToIntNodes(gt.getRoot(), intTree.getRoot());
-		return intTree;
+		long start = System.nanoTime();
+		visitValues(this.getRoot(), 0, visitor);
+		EngineMetrics.phase(EngineMetrics.Phase.EXTRACT,
+				System.nanoTime() - start);
 	}
 	
 	/**
-	 * Traverses a tree of GameStates and calculates the value of the path at  
-	 * each node and uses a tree of integers to hold this.
+	 * Actual implementation of visitValues.
 	 * 
-	 * @param ngs - The GameStates
-	 * @param intNode - Holds the path values.
+	 * @param node - The node to visit along with its subtree.
+	 * @param depth - Depth of the node.
+	 * @param visitor - Receives each value and its depth.
 	 */
-	private static void gameNodesToIntNodes(
-			Node<GameState> ngs, Node<Integer> intNode)
+	private static void visitValues(Node<GameState> node, int depth,
+			ValueVisitor visitor)
 	{
-		// Compute value of path at the current node.
-		int result = pathToValue(ngs.getValue().getPath());
-		intNode.SetValue(result);
-		int childrenSize = ngs.getChildren().size();
+		visitor.visit(node.getValue().getAccumulator(), depth);
 		
-		// Apply to each child node.
-		for(int i = 0; i < childrenSize; i++)
-		{
-			// Initialise the children of intNode with 0's.
-			intNode.addChild(new Node<Integer>(0));
-			gameNodesToIntNodes(ngs.getChildren().get(i),
-					intNode.getChildren().get(i));
-		}
+		for(Node<GameState> n : node.getChildren())
+			visitValues(n, depth+1, visitor);
+		
+		// A lazy subtree is not needed once visited.
+		node.release();
 	}
 	
 	/**
-	 * Turns an ArrayList of tiles into an value.
-	 * @param tilePath - The tiles to convert. 
-	 * @return - The value.
+	 * Generates the nodes for the moves from a GameState, for one level of
+	 * a lazy tree.
 	 */
-	private static int pathToValue(ArrayList<Tile> tilePath)
-	{
-		int length = tilePath.size();
-		if(length == 0)
-			return 0;
+	private static class MoveGenerator implements ChildGenerator<GameState> {
 		
-		// Set the accumulator to the first integer in the path.
-		int accumulator = Integer.parseInt(
-				String.valueOf(tilePath.get(0).letter()));
-		char currentChar = 0;
-		char currentOp = 0;
+		// Generator for the level below, null if the children are leaves.
+		private final MoveGenerator next;
+		// Level of the nodes generated.
+		private final int level;
 		
-		// Visit each element in the path and
-		// compute it's effect on the accumulator.
-		for(int i = 1; i < length; i++) 
+		MoveGenerator(MoveGenerator next, int level)
 		{
-			currentChar = tilePath.get(i).letter();
-			switch(currentChar)
-			{
-			// If it is an operator.
-			case '*':
-			case '%':
-			case '+':
-			case '-':
-				currentOp = currentChar;
-				break;
-			default:
-				int currentNumber = Integer.parseInt(
-						String.valueOf(currentChar));
-				// If a number is found apply the last operator
-				// to it and the accumulator.
-				switch (currentOp)
-				{
-				case '*':
-					accumulator *= currentNumber;
-					break;
-				case '%':
-					if(currentNumber == 0) {
-						accumulator = 0;
-					} else {
-						accumulator %= currentNumber;
-					}
-					break;
-				case '+':
-					accumulator += currentNumber;
-					break;
-				case '-':
-					accumulator -= currentNumber;
-					break;
-				}
-			}
+			this.next = next;
+			this.level = level;
 		}
 		
-		return accumulator;
-	}
-	
-	/**
-	 * Takes a list of numbers (obtained from BFS on the extracted IntTree) and
-	 * returns a list of the same length but with the numbers sorted by the 
-	 * frequency of their appearance in ascending order.  
-	 * @param intList
-	 * @return
-	 */
-	 static ArrayList<Integer> sortByFrequency(ArrayList<Integer> intList)
-	{
-		// Use point to store (number, frequency) pair. 
-		ArrayList<Point> numberCountPairs = new ArrayList<Point>();
-		
-		ArrayList<Integer> sortedByFreq = new ArrayList<Integer>();
-		int counter = 0;
-		
-		Collections.sort(intList);
-		
-		numberCountPairs.add(new Point(intList.get(0).intValue(), 1));
-		
-		for(int i = 1; i < intList.size(); i++)
+		@Override
+		public ArrayList<Node<GameState>> generate(GameState gs)
 		{
-			if(intList.get(i).equals(intList.get(i-1))) {
-				// If the next number == previous number
-				// then increment the frequency.
-				numberCountPairs.get(counter).y++;
-			} else {
-				// Otherwise create a new entry for the next number. 
-				counter++;
-				numberCountPairs.add(new Point(intList.get(i).intValue(), 1));
-			}
+			ArrayList<Node<GameState>> children =
+					new ArrayList<Node<GameState>>();
+			for(GameState child : GameState.nextGameStates(gs))
+				children.add(new Node<GameState>(child, next));
+			
+			EngineMetrics.treeNodes(level, children.size());
+			EngineMetrics.statesCreated(children.size());
+			return children;
 		}
-		
-		// Sort pairs by frequency.
-		Collections.sort(numberCountPairs, new Comparator<Point>() {
-			@Override
-			public int compare(Point p1, Point p2)
-			{
-				return p1.y - p2.y;
-			}
-		});
-		
-		
-		// Use the (number, frequency) pairs to populate return array. 
-		for(Point p : numberCountPairs) 
-			for(int i = 0; i < p.y; i++)
-				sortedByFreq.add(new Integer(p.x));
-		
-		return sortedByFreq;
 	}
 }
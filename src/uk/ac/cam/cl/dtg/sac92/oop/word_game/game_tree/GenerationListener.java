@@ -0,0 +1,27 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * Receives the outcome of generating a required number in the background,
+ * along with progress reports while it is being generated. Methods are
+ * called from background threads.
+ * 
+ * @author Navid
+ *
+ */
+public interface GenerationListener extends ProgressListener {
+
+	/**
+	 * Called once the required number has been generated. Not called if the
+	 * generation is cancelled.
+	 * 
+	 * @param requiredNumber - The number generated.
+	 */
+	void generated(int requiredNumber);
+
+	/**
+	 * Called if generating the required number failed.
+	 * 
+	 * @param cause - What went wrong.
+	 */
+	void failed(Throwable cause);
+}
@@ -0,0 +1,144 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records how long an operation takes so that percentiles can be reported
+ * without keeping every time. Times are counted in buckets whose width
+ * grows with the time, four to each doubling, so a percentile is within
+ * 25% of the true time whatever the scale, in a fixed 1KB or so.
+ * 
+ * @author Navid
+ *
+ */
+public final class LatencyRecorder {
+
+	// Buckets for each doubling of the time.
+	private static final int SUB_BUCKETS = 4;
+	// Times are in microseconds, 2^40 of them is about 12 days.
+	private static final int BUCKETS = 40 * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalMicros = new AtomicLong();
+	private final AtomicLong maxMicros = new AtomicLong();
+	private volatile long lastMicros = 0;
+
+	/**
+	 * Records a time.
+	 * @param nanos - The time taken in nanoseconds.
+	 */
+	public void record(long nanos)
+	{
+		long micros = Math.max(0, nanos / 1000);
+
+		buckets.incrementAndGet(bucket(micros));
+		count.incrementAndGet();
+		totalMicros.addAndGet(micros);
+		lastMicros = micros;
+
+		long max = maxMicros.get();
+		while(micros > max && !maxMicros.compareAndSet(max, micros))
+			max = maxMicros.get();
+	}
+
+	/**
+	 * Gets the number of times recorded.
+	 * @return - The count.
+	 */
+	public long count() {return count.get();}
+
+	/**
+	 * Gets the last time recorded.
+	 * @return - The time in milliseconds.
+	 */
+	public double lastMillis() {return lastMicros / 1000.0;}
+
+	/**
+	 * Gets the longest time recorded.
+	 * @return - The time in milliseconds.
+	 */
+	public double maxMillis() {return maxMicros.get() / 1000.0;}
+
+	/**
+	 * Gets the mean time.
+	 * @return - The time in milliseconds, 0 if none have been recorded.
+	 */
+	public double meanMillis()
+	{
+		long n = count.get();
+		return n == 0 ? 0 : totalMicros.get() / 1000.0 / n;
+	}
+
+	/**
+	 * Gets a percentile of the times, as the upper end of the bucket it
+	 * falls in.
+	 * 
+	 * @param p - The percentile, from 0 to 1.
+	 * @return - The time in milliseconds, 0 if none have been recorded.
+	 */
+	public double percentileMillis(double p)
+	{
+		long[] counts = new long[BUCKETS];
+		long n = 0;
+		for(int b = 0; b < BUCKETS; b++)
+		{
+			counts[b] = buckets.get(b);
+			n += counts[b];
+		}
+		if(n == 0)
+			return 0;
+
+		// The time at this position in sorted order is the percentile.
+		long rank = Math.max(1, (long)Math.ceil(p * n));
+		long seen = 0;
+		for(int b = 0; b < BUCKETS; b++)
+		{
+			seen += counts[b];
+			if(seen >= rank)
+				return Math.min(upperBound(b), maxMicros.get()) / 1000.0;
+		}
+		return maxMillis();
+	}
+
+	/**
+	 * Forgets every time recorded.
+	 */
+	public void reset()
+	{
+		for(int b = 0; b < BUCKETS; b++)
+			buckets.set(b, 0);
+		count.set(0);
+		totalMicros.set(0);
+		maxMicros.set(0);
+		lastMicros = 0;
+	}
+
+	/**
+	 * Gets the bucket a time falls in.
+	 */
+	private static int bucket(long micros)
+	{
+		if(micros < SUB_BUCKETS)
+			return (int)micros;
+
+		// The top bit gives the doubling, the next two bits the quarter of it.
+		int power = 63 - Long.numberOfLeadingZeros(micros);
+		int quarter = (int)(micros >>> (power - 2)) & (SUB_BUCKETS - 1);
+		return Math.min(BUCKETS - 1, (power - 1) * SUB_BUCKETS + quarter);
+	}
+
+	/**
+	 * Gets the largest time that falls in a bucket.
+	 */
+	private static long upperBound(int bucket)
+	{
+		if(bucket < SUB_BUCKETS)
+			return bucket;
+
+		int power = bucket / SUB_BUCKETS + 1;
+		int quarter = bucket % SUB_BUCKETS;
+		return ((long)(SUB_BUCKETS + quarter + 1) << (power - 2)) - 1;
+	}
+}
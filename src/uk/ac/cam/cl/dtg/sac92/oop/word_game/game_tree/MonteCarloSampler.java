@@ -0,0 +1,189 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Estimates how often each value is reached down to a depth from random
+ * walks, for depths where counting every GameState takes too long.
+ * 
+ * Each walk starts at the root and makes a uniformly random valid move at
+ * each step until it reaches the depth or runs out of moves. A state at the
+ * end of a walk that chose among b1, b2, ... moves stands for b1*b2*...
+ * states at its level, so it is given that weight (Knuth's estimator). The
+ * mean weight given to a value over the walks is an unbiased estimate of
+ * its count, and the spread of the weights gives its standard error.
+ * 
+ * The path of each walk is kept packed in a long, so the shortest path
+ * found to each value is kept as a witness that the value can be made.
+ * 
+ * @author Navid
+ *
+ */
+public class MonteCarloSampler {
+
+	// Number of walks taken by Exploration.SAMPLED.
+	public static final int DEFAULT_SAMPLES = 1 << 16;
+
+	private final int samples;
+	private final Random random;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param samples - Number of random walks to take.
+	 * @param random - Source of the random moves.
+	 */
+	public MonteCarloSampler(int samples, Random random)
+	{
+		if(samples < 1) {
+			throw new IllegalArgumentException("MonteCarloSampler:constructor("
+					+ samples + "): at least one sample is needed");
+		}
+		this.samples = samples;
+		this.random = random;
+	}
+
+	/**
+	 * Estimates how often each value is reached down to a specified depth.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, counting the root as one level.
+	 * @return - The estimated counts of each value.
+	 */
+	public SampledHistogram sample(GameState gs, int depth)
+	{
+		return sample(gs, depth, null);
+	}
+
+	/**
+	 * Estimates how often each value is reached down to a specified depth,
+	 * reporting to a monitor as it goes.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, counting the root as one level.
+	 * @param monitor - Follows the sampling, may be null.
+	 * @return - The estimated counts of each value.
+	 * @throws java.util.concurrent.CancellationException - If the monitor
+	 * is cancelled during the sampling.
+	 */
+	public SampledHistogram sample(GameState gs, int depth,
+			SearchMonitor monitor)
+	{
+		// Witnesses have to fit in a packed path.
+		if(depth - 1 > PackedPath.MAX_LENGTH) {
+			throw new IllegalArgumentException("MonteCarloSampler:sample(" +
+					depth + "): paths are limited to " + PackedPath.MAX_LENGTH +
+					" moves");
+		}
+
+		Board board = gs.getBoard();
+		ValueIndex index = new ValueIndex();
+		double[] sums = new double[0];
+		double[] squares = new double[0];
+		long[] witnesses = new long[0];
+
+		// The values reached by the current walk and the weight given to
+		// each, a value can be reached more than once on a walk.
+		int[] walkValues = new int[Math.max(depth, 0)];
+		double[] walkWeights = new double[Math.max(depth, 0)];
+
+		int unreported = 0;
+		int deepest = 0;
+		// States visited at each level, recorded once the sampling is over.
+		long[] levelStates = new long[Math.max(depth, 0)];
+
+		for(int s = 0; s < samples && depth > 0; s++)
+		{
+			long visited = gs.getVisited();
+			int lastCell = gs.getLastCell();
+			int accumulator = gs.getAccumulator();
+			long path = PackedPath.EMPTY;
+			double weight = 1;
+			int reached = 0;
+
+			for(int level = 0; ; level++)
+			{
+				int i = index.add(accumulator);
+				if(i >= sums.length) {
+					int old = sums.length;
+					int length = Math.max(64, old * 2);
+					sums = Arrays.copyOf(sums, length);
+					squares = Arrays.copyOf(squares, length);
+					witnesses = Arrays.copyOf(witnesses, length);
+					Arrays.fill(witnesses, old, length, PackedPath.NONE);
+				}
+				if(witnesses[i] == PackedPath.NONE ||
+						PackedPath.length(path) < PackedPath.length(witnesses[i]))
+					witnesses[i] = path;
+
+				reached = addWeight(walkValues, walkWeights, reached, i, weight);
+				unreported++;
+				levelStates[level]++;
+				deepest = Math.max(deepest, level);
+
+				if(level + 1 >= depth)
+					break;
+
+				long moves = GameState.moves(board, visited, lastCell);
+				int branching = Long.bitCount(moves);
+				if(branching == 0)
+					break;
+
+				// Clear the lowest set bits to find the chosen move.
+				for(int skip = random.nextInt(branching); skip > 0; skip--)
+					moves &= moves - 1;
+				int cell = Long.numberOfTrailingZeros(moves);
+
+				weight *= branching;
+				accumulator = GameState.valueAfter(board, lastCell, accumulator,
+						cell);
+				visited |= 1L << cell;
+				lastCell = cell;
+				path = PackedPath.append(path, cell);
+			}
+
+			for(int k = 0; k < reached; k++)
+			{
+				sums[walkValues[k]] += walkWeights[k];
+				squares[walkValues[k]] += walkWeights[k] * walkWeights[k];
+			}
+
+			if(monitor != null && unreported >= SearchMonitor.BATCH) {
+				monitor.expanded(unreported, deepest);
+				unreported = 0;
+			}
+		}
+
+		if(monitor != null)
+			monitor.finished(unreported, deepest);
+		EngineMetrics.expanded(levelStates);
+
+		return new SampledHistogram(index, sums, squares, witnesses, samples);
+	}
+
+	/**
+	 * Adds weight to a value reached by the current walk.
+	 * 
+	 * @param values - Indices of the values reached so far.
+	 * @param weights - Weight given to each of them.
+	 * @param reached - Number of values reached so far.
+	 * @param value - Index of the value.
+	 * @param weight - Weight to add.
+	 * @return - The new number of values reached.
+	 */
+	private static int addWeight(int[] values, double[] weights, int reached,
+			int value, double weight)
+	{
+		for(int k = 0; k < reached; k++)
+		{
+			if(values[k] == value) {
+				weights[k] += weight;
+				return reached;
+			}
+		}
+		values[reached] = value;
+		weights[reached] = weight;
+		return reached + 1;
+	}
+}
@@ -1,9 +1,15 @@
 package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 /**
  * Represents a node with an arbitrary number of children. 
  * 
+ * A node can be lazy, in which case its children are only generated, by a
+ * ChildGenerator, when they are first accessed. A lazy node can release its
+ * children once they have been visited and they will be generated again if
+ * they are needed later.
+ * 
  * @author Navid
  *
  * @param <T> - Parameter of Node. 
@@ -12,6 +18,8 @@ public class Node<T> {
 	
 	private T value;
 	private ArrayList<Node<T>> children;
+	// Generates the children of a lazy node, null for other nodes.
+	private ChildGenerator<T> generator;
 	
 	/**
 	 * Constructor - Sets the value and initialises child nodes. 
@@ -23,6 +31,22 @@ public class Node<T> {
 		children = new ArrayList<Node<T>>();
 	}
 	
+	/**
+	 * Constructor - Creates a lazy node, its children are generated when
+	 * they are first accessed.
+	 * @param value - Value.
+	 * @param generator - Generates the child nodes.
+	 */
+	public Node(T value, ChildGenerator<T> generator)
+	{
+		this.value = value;
+		this.generator = generator;
+		
+		// Without a generator the node simply has no children.
+		if(generator == null)
+			children = new ArrayList<Node<T>>();
+	}
+	
 	/**
 	 * Gets the value of the node.
 	 * @return - Value.
@@ -41,9 +65,50 @@ public class Node<T> {
 	 */
 	public ArrayList<Node<T>> getChildren()
 	{
+		// Lazy nodes generate their children on first access.
+		if(children == null)
+			children = generator.generate(value);
 		return children;
 	}
 	
+	/**
+	 * Gets an iterator over the child nodes.
+	 * @return - Iterator over the child nodes.
+	 */
+	public Iterator<Node<T>> childIterator()
+	{
+		return getChildren().iterator();
+	}
+	
+	/**
+	 * Is this a lazy node.
+	 * @return - True if the children are generated on access.
+	 */
+	public boolean isLazy()
+	{
+		return generator != null;
+	}
+	
+	/**
+	 * Have the child nodes been generated.
+	 * @return - True if the children are held by this node.
+	 */
+	public boolean isExpanded()
+	{
+		return children != null;
+	}
+	
+	/**
+	 * Releases the child nodes of a lazy node so their memory can be
+	 * reclaimed, they are generated again if accessed. Other nodes keep
+	 * their children.
+	 */
+	public void release()
+	{
+		if(generator != null)
+			children = null;
+	}
+	
 	/**
 	 * Sets the child nodes.
 	 * @param children - Child nodes.
@@ -59,7 +124,7 @@ public class Node<T> {
 	 */
 	public void addChild(Node<T> child)
 	{
-		children.add(child);
+		getChildren().add(child);
 	}
 	
 	/**
@@ -69,11 +134,11 @@ public class Node<T> {
 	 */
 	public void addChildren(ArrayList<Node<T>> children)
 	{
-		this.children.addAll(children);
+		getChildren().addAll(children);
 	}
 	
 	/**
-	 * Counts the nodes in the tree.
+	 * Counts the nodes in the tree. This generates every node of a lazy tree.
 	 * 
 	 * @return - Total nodes in the tree.
 	 */
@@ -81,7 +146,7 @@ public class Node<T> {
 	{
 		int count = 1;
 		
-		if(children.size() != 0) {
+		if(getChildren().size() != 0) {
 			for(Node<T> n : children)
 				count+= n.count();
 		}
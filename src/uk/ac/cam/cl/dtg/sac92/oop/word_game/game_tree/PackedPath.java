@@ -0,0 +1,124 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * Packs a path of up to MAX_LENGTH cells into a single long so that paths
+ * can be stored and passed around without allocating. Each cell takes 6
+ * bits, the first cell in the lowest bits, and the length is held in the
+ * top 4 bits.
+ * 
+ * @author Navid
+ *
+ */
+public abstract class PackedPath {
+
+	// The path with no cells.
+	public static final long EMPTY = 0L;
+	// Stands for no path at all, its length field is out of range.
+	public static final long NONE = -1L;
+	// Most cells a packed path can hold.
+	public static final int MAX_LENGTH = 10;
+
+	private static final int CELL_BITS = 6;
+	private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+	private static final int LENGTH_SHIFT = 60;
+
+	private PackedPath(){}
+
+	/**
+	 * Gets the number of cells on a path.
+	 * @param path - The packed path.
+	 * @return - The number of cells.
+	 */
+	public static int length(long path)
+	{
+		return (int)(path >>> LENGTH_SHIFT);
+	}
+
+	/**
+	 * Gets a cell on a path.
+	 * @param path - The packed path.
+	 * @param i - Position on the path, from 0.
+	 * @return - The cell.
+	 */
+	public static int cell(long path, int i)
+	{
+		return (int)((path >>> (CELL_BITS * i)) & CELL_MASK);
+	}
+
+	/**
+	 * Adds a cell to the end of a path.
+	 * 
+	 * @param path - The packed path.
+	 * @param cell - The cell to add.
+	 * @return - The longer path.
+	 */
+	public static long append(long path, int cell)
+	{
+		int length = length(path);
+		if(length >= MAX_LENGTH) {
+			throw new IllegalStateException("PackedPath:append(" + cell +
+					"): paths hold at most " + MAX_LENGTH + " cells");
+		}
+
+		long cells = path & ((1L << LENGTH_SHIFT) - 1);
+		return cells | ((long)cell << (CELL_BITS * length)) |
+				((long)(length + 1) << LENGTH_SHIFT);
+	}
+
+	/**
+	 * Unpacks the cells of a path.
+	 * @param path - The packed path.
+	 * @return - The cells in order.
+	 */
+	public static int[] cells(long path)
+	{
+		int[] cells = new int[length(path)];
+		for(int i = 0; i < cells.length; i++)
+			cells[i] = cell(path, i);
+		return cells;
+	}
+
+	/**
+	 * Plays a path from a GameState, checking that every move is valid.
+	 * 
+	 * @param root - The GameState to start from.
+	 * @param path - The packed path.
+	 * @return - The GameState at the end of the path, or null if the path
+	 * is NONE or makes an invalid move.
+	 */
+	public static GameState replay(GameState root, long path)
+	{
+		if(path == NONE)
+			return null;
+
+		GameState gs = root;
+		for(int i = 0; i < length(path); i++)
+		{
+			int cell = cell(path, i);
+			if((gs.moves() & (1L << cell)) == 0)
+				return null;
+			gs = gs.play(cell);
+		}
+		return gs;
+	}
+
+	/**
+	 * Lists the cells of a path.
+	 * @param path - The packed path.
+	 * @return - e.g. "[3, 11, 12]", or "NONE".
+	 */
+	public static String toString(long path)
+	{
+		if(path == NONE)
+			return "NONE";
+
+		StringBuilder s = new StringBuilder("[");
+		for(int i = 0; i < length(path); i++)
+		{
+			if(i > 0)
+				s.append(", ");
+			s.append(cell(path, i));
+		}
+		return s.append(']').toString();
+	}
+}
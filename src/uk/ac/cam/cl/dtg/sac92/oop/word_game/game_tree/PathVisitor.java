@@ -0,0 +1,20 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * Receives each value found by a walk of the GameStates together with the
+ * path that reached it.
+ * 
+ * @author Navid
+ *
+ */
+public interface PathVisitor {
+
+	/**
+	 * Called for each GameState reached.
+	 * 
+	 * @param value - The value of the GameState.
+	 * @param depth - Its depth, the root is at depth 0.
+	 * @param path - The moves from the root, packed by PackedPath.
+	 */
+	void visit(int value, int depth, long path);
+}
@@ -0,0 +1,18 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * Receives reports of how far a search of the GameStates has got.
+ * 
+ * @author Navid
+ *
+ */
+public interface ProgressListener {
+
+	/**
+	 * Called from the searching threads every so often during a search.
+	 * 
+	 * @param nodes - Number of GameStates expanded so far.
+	 * @param depth - Deepest level reached so far, the root is at depth 0.
+	 */
+	void progress(long nodes, int depth);
+}
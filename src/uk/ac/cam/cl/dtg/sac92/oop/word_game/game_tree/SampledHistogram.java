@@ -0,0 +1,140 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * Value counts estimated by a MonteCarloSampler. The counts held by the
+ * ValueHistogram are the estimates rounded, at least 1 as every value in it
+ * was actually reached, so it ranks values like an exact histogram. On top
+ * of that it gives a confidence interval for each estimate and a witness: a
+ * path found by the sampler that reaches the value.
+ * 
+ * @author Navid
+ *
+ */
+public class SampledHistogram extends ValueHistogram {
+
+	// Normal quantile for a 95% confidence interval.
+	private static final double Z_95 = 1.96;
+
+	private final ValueIndex index;
+	private final double[] estimates;
+	private final double[] standardErrors;
+	private final long[] witnesses;
+	private final long samples;
+
+	/**
+	 * Constructor - Works out the estimates from the sums of the weights
+	 * each walk gave each value.
+	 * 
+	 * @param index - Numbers the values seen.
+	 * @param sums - Sum over the walks of the weight given to each value.
+	 * @param squares - Sum over the walks of the square of that weight.
+	 * @param witnesses - Shortest packed path found to each value.
+	 * @param samples - Number of walks.
+	 */
+	SampledHistogram(ValueIndex index, double[] sums, double[] squares,
+			long[] witnesses, long samples)
+	{
+		int size = index.size();
+		int[] values = index.values();
+
+		this.index = index;
+		this.estimates = new double[size];
+		this.standardErrors = new double[size];
+		this.witnesses = new long[size];
+		this.samples = samples;
+
+		for(int i = 0; i < size; i++)
+		{
+			double mean = sums[i] / samples;
+			double variance = 0;
+			if(samples > 1) {
+				variance = (squares[i] / samples - mean * mean) * samples /
+						(samples - 1);
+			}
+
+			estimates[i] = mean;
+			standardErrors[i] = Math.sqrt(Math.max(0, variance) / samples);
+			this.witnesses[i] = witnesses[i];
+
+			add(values[i], Math.max(1, Math.round(mean)));
+		}
+	}
+
+	/**
+	 * Gets the number of random walks the estimates come from.
+	 * @return - The number of walks.
+	 */
+	public long samples() {return samples;}
+
+	/**
+	 * Gets the estimated number of GameStates with a value.
+	 * @param value - The value.
+	 * @return - The estimate, 0 if the value was never reached.
+	 */
+	public double estimate(int value)
+	{
+		int i = index.indexOf(value);
+		return i < 0 ? 0 : estimates[i];
+	}
+
+	/**
+	 * Gets the standard error of the estimate for a value.
+	 * @param value - The value.
+	 * @return - The standard error, 0 if the value was never reached.
+	 */
+	public double standardError(int value)
+	{
+		int i = index.indexOf(value);
+		return i < 0 ? 0 : standardErrors[i];
+	}
+
+	/**
+	 * Gets the lower end of the 95% confidence interval for a value, which
+	 * is at least 1 for a value that was reached.
+	 * @param value - The value.
+	 * @return - The lower bound.
+	 */
+	public double lowerBound(int value)
+	{
+		int i = index.indexOf(value);
+		if(i < 0)
+			return 0;
+		return Math.max(1, estimates[i] - Z_95 * standardErrors[i]);
+	}
+
+	/**
+	 * Gets the upper end of the 95% confidence interval for a value.
+	 * @param value - The value.
+	 * @return - The upper bound.
+	 */
+	public double upperBound(int value)
+	{
+		int i = index.indexOf(value);
+		return i < 0 ? 0 : estimates[i] + Z_95 * standardErrors[i];
+	}
+
+	/**
+	 * Gets the shortest path the sampler found to a value.
+	 * @param value - The value.
+	 * @return - The packed path, or PackedPath.NONE if it was not reached.
+	 */
+	public long witness(int value)
+	{
+		int i = index.indexOf(value);
+		return i < 0 ? PackedPath.NONE : witnesses[i];
+	}
+
+	/**
+	 * Checks that the witness for a value really reaches it from a GameState,
+	 * which proves the value can be made.
+	 * 
+	 * @param root - The GameState the sample was taken from.
+	 * @param value - The value.
+	 * @return - True if the witness is valid and reaches the value.
+	 */
+	public boolean verify(GameState root, int value)
+	{
+		GameState end = PackedPath.replay(root, witness(value));
+		return end != null && end.getAccumulator() == value;
+	}
+}
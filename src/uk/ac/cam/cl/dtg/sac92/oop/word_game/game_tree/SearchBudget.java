@@ -0,0 +1,85 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * A limit on how much work a search may do, as a number of GameStates
+ * expanded and a wall-clock time. A search that runs over its budget is
+ * stopped by its SearchMonitor with a BudgetExhaustedException. The limits
+ * are checked each time the search reports to its monitor, so a search can
+ * go slightly over them.
+ * 
+ * @author Navid
+ *
+ */
+public final class SearchBudget {
+
+	// No limit on either the states expanded or the time taken.
+	public static final SearchBudget UNLIMITED =
+			new SearchBudget(Long.MAX_VALUE, Long.MAX_VALUE);
+
+	private final long maxNodes;
+	private final long maxMillis;
+
+	/**
+	 * Constructor - Creates a budget with both limits.
+	 * 
+	 * @param maxNodes - Maximum number of states to expand.
+	 * @param maxMillis - Maximum time to take in milliseconds.
+	 */
+	public SearchBudget(long maxNodes, long maxMillis)
+	{
+		if(maxNodes < 0 || maxMillis < 0) {
+			throw new IllegalArgumentException("SearchBudget:constructor(" +
+					maxNodes + ", " + maxMillis + "): limits must not be " +
+					"negative");
+		}
+		this.maxNodes = maxNodes;
+		this.maxMillis = maxMillis;
+	}
+
+	/**
+	 * Creates a budget limiting only the states expanded.
+	 * @param maxNodes - Maximum number of states to expand.
+	 * @return - The budget.
+	 */
+	public static SearchBudget nodes(long maxNodes)
+	{
+		return new SearchBudget(maxNodes, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a budget limiting only the time taken.
+	 * @param maxMillis - Maximum time to take in milliseconds.
+	 * @return - The budget.
+	 */
+	public static SearchBudget millis(long maxMillis)
+	{
+		return new SearchBudget(Long.MAX_VALUE, maxMillis);
+	}
+
+	/**
+	 * Gets the maximum number of states to expand.
+	 * @return - The maximum number of states.
+	 */
+	public long maxNodes() {return maxNodes;}
+
+	/**
+	 * Gets the maximum time to take.
+	 * @return - The maximum time in milliseconds.
+	 */
+	public long maxMillis() {return maxMillis;}
+
+	/**
+	 * Is there no limit at all.
+	 * @return - True if neither limit applies.
+	 */
+	public boolean isUnlimited()
+	{
+		return maxNodes == Long.MAX_VALUE && maxMillis == Long.MAX_VALUE;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "SearchBudget[nodes=" + maxNodes + ", millis=" + maxMillis + "]";
+	}
+}
@@ -0,0 +1,206 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Follows a search of the GameStates: counts the states expanded, passes
+ * progress on to a ProgressListener and lets the search be cancelled.
+ * 
+ * Searches report to the monitor in batches so that it costs next to
+ * nothing per state. Cancelling is cooperative, the next time a search
+ * reports it stops by throwing a CancellationException. A monitor can also
+ * be given a SearchBudget, shared by all the searches it follows, and stops
+ * them with a BudgetExhaustedException once it is spent.
+ * 
+ * @author Navid
+ *
+ */
+public class SearchMonitor {
+
+	// Number of states a search expands between reports.
+	static final int BATCH = 4096;
+	// Minimum time between progress reports to the listener.
+	private static final long REPORT_INTERVAL_NANOS = 100000000L;
+
+	private final ProgressListener listener;
+	private final SearchBudget budget;
+	private final long start = System.nanoTime();
+	private final AtomicLong nodes = new AtomicLong();
+	private volatile int depth = 0;
+	private volatile boolean cancelled = false;
+	private volatile boolean exhausted = false;
+	private volatile long lastReport = start;
+
+	/**
+	 * Constructor - Creates a monitor that reports to a listener.
+	 * 
+	 * @param listener - Receives progress reports, may be null.
+	 */
+	public SearchMonitor(ProgressListener listener)
+	{
+		this(listener, SearchBudget.UNLIMITED);
+	}
+
+	/**
+	 * Constructor - Creates a monitor that reports to a listener and stops
+	 * the search when a budget is spent. The time allowed is counted from
+	 * when the monitor is created.
+	 * 
+	 * @param listener - Receives progress reports, may be null.
+	 * @param budget - The budget for the searches followed.
+	 */
+	public SearchMonitor(ProgressListener listener, SearchBudget budget)
+	{
+		this.listener = listener;
+		this.budget = budget;
+	}
+
+	/**
+	 * Asks the search to stop.
+	 */
+	public void cancel() {cancelled = true;}
+
+	/**
+	 * Has the search been asked to stop.
+	 * @return - True if cancelled.
+	 */
+	public boolean isCancelled() {return cancelled;}
+
+	/**
+	 * Has the budget been spent.
+	 * @return - True if a search has been stopped for going over budget.
+	 */
+	public boolean isExhausted() {return exhausted;}
+
+	/**
+	 * Has the budget been spent, whether or not a search has been stopped
+	 * for it yet.
+	 * @return - True if over either limit.
+	 */
+	public boolean isOverBudget()
+	{
+		return exhausted || nodes.get() > budget.maxNodes() ||
+				elapsedMillis() >= budget.maxMillis();
+	}
+
+	/**
+	 * Gets the budget.
+	 * @return - The budget.
+	 */
+	public SearchBudget budget() {return budget;}
+
+	/**
+	 * Gets the time since the monitor was created.
+	 * @return - The time in milliseconds.
+	 */
+	public long elapsedMillis()
+	{
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	/**
+	 * Gets the number of states expanded so far.
+	 * @return - The number of states.
+	 */
+	public long nodes() {return nodes.get();}
+
+	/**
+	 * Gets the deepest level reached so far.
+	 * @return - The depth.
+	 */
+	public int depth() {return depth;}
+
+	/**
+	 * Records states expanded by a search. Called by the searching threads.
+	 * 
+	 * @param count - Number of states expanded since the last report.
+	 * @param deepest - Deepest level reached by them.
+	 * @throws CancellationException - If the search has been cancelled.
+	 * @throws BudgetExhaustedException - If the budget has been spent.
+	 */
+	void expanded(long count, int deepest)
+	{
+		long total = finished(count, deepest);
+
+		if(cancelled)
+			throw new CancellationException("Search cancelled");
+
+		if(isOverBudget()) {
+			exhausted = true;
+			throw new BudgetExhaustedException("Expanded " + total +
+					" states in " + elapsedMillis() + "ms, over " + budget);
+		}
+
+		long now = System.nanoTime();
+		if(listener != null && now - lastReport >= REPORT_INTERVAL_NANOS) {
+			lastReport = now;
+			listener.progress(total, depth);
+		}
+	}
+
+	/**
+	 * Records the last states expanded by a search that has finished, so
+	 * they are counted but do not stop it.
+	 * 
+	 * @param count - Number of states expanded since the last report.
+	 * @param deepest - Deepest level reached by them.
+	 * @return - The number of states expanded so far.
+	 */
+	long finished(long count, int deepest)
+	{
+		long total = nodes.addAndGet(count);
+		if(deepest > depth)
+			depth = deepest;
+		return total;
+	}
+
+	/**
+	 * Wraps a visitor so that the states it visits are reported to this
+	 * monitor. finish() must be called at the end of the walk.
+	 * 
+	 * @param visitor - The visitor to wrap.
+	 * @return - The wrapped visitor.
+	 */
+	MonitoredVisitor watch(ValueVisitor visitor)
+	{
+		return new MonitoredVisitor(visitor);
+	}
+
+	/**
+	 * Counts visits locally and reports them to the monitor in batches.
+	 */
+	class MonitoredVisitor implements ValueVisitor {
+
+		private final ValueVisitor visitor;
+		private int count = 0;
+		private int deepest = 0;
+
+		MonitoredVisitor(ValueVisitor visitor)
+		{
+			this.visitor = visitor;
+		}
+
+		@Override
+		public void visit(int value, int depth)
+		{
+			visitor.visit(value, depth);
+
+			if(depth > deepest)
+				deepest = depth;
+			if(++count == BATCH) {
+				count = 0;
+				expanded(BATCH, deepest);
+			}
+		}
+
+		/**
+		 * Reports the visits not yet reported at the end of the walk.
+		 */
+		void finish()
+		{
+			finished(count, deepest);
+			count = 0;
+		}
+	}
+}
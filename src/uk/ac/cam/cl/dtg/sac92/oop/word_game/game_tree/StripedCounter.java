@@ -0,0 +1,83 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that many threads can add to at once without contending. Each
+ * thread adds to one of several stripes, chosen by its id, and the stripes
+ * are summed when the counter is read, so adding is cheap enough to leave
+ * on all the time while reading costs a little more.
+ * 
+ * The stripes are spread out in the array so that two of them do not share
+ * a cache line.
+ * 
+ * @author Navid
+ *
+ */
+final class StripedCounter {
+
+	// Longs in a 64 byte cache line, stripes are this far apart.
+	private static final int SPACING = 8;
+	private static final int STRIPES = stripes();
+
+	private final AtomicLongArray cells =
+			new AtomicLongArray(STRIPES * SPACING);
+
+	/**
+	 * Adds to the counter.
+	 * @param n - The amount to add.
+	 */
+	void add(long n)
+	{
+		cells.getAndAdd(stripe(), n);
+	}
+
+	/**
+	 * Adds one to the counter.
+	 */
+	void increment()
+	{
+		add(1);
+	}
+
+	/**
+	 * Gets the total of everything added. Adds made while it is being read
+	 * may or may not be included.
+	 * @return - The total.
+	 */
+	long sum()
+	{
+		long sum = 0;
+		for(int i = 0; i < STRIPES; i++)
+			sum += cells.get(i * SPACING);
+		return sum;
+	}
+
+	/**
+	 * Sets the counter back to zero.
+	 */
+	void reset()
+	{
+		for(int i = 0; i < STRIPES; i++)
+			cells.set(i * SPACING, 0);
+	}
+
+	/**
+	 * Gets the index of the stripe for the current thread.
+	 */
+	private static int stripe()
+	{
+		int h = (int)Thread.currentThread().getId() * 0x9E3779B9;
+		return ((h ^ (h >>> 16)) & (STRIPES - 1)) * SPACING;
+	}
+
+	/**
+	 * Gets the number of stripes, a power of two at least twice the number
+	 * of cores so that threads rarely share one.
+	 */
+	private static int stripes()
+	{
+		int cores = Runtime.getRuntime().availableProcessors();
+		return Integer.highestOneBit(Math.max(1, cores) * 2 - 1) * 2;
+	}
+}
@@ -0,0 +1,280 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * Finds the shortest path that makes a target value, for hints, for checking
+ * that a target can be made and for working out the best possible score.
+ * 
+ * The search is iterative deepening depth first: all paths of one length are
+ * tried before any longer one, so the first path found is a shortest one
+ * and the search stops there. A path ends on a number (one ending on an
+ * operator has the same value as the shorter path without it), so only
+ * lengths of the right parity are tried.
+ * 
+ * Paths are pruned with bounds on the values they can still reach. The
+ * numbers and operators on the board limit how far each remaining operator
+ * and number can move the value, e.g. on a board without '*' or '-' values
+ * only grow by at most the largest number per step, so a path whose value
+ * cannot get to the target in the moves left is abandoned.
+ * 
+ * @author Navid
+ *
+ */
+public abstract class TargetSolver {
+
+	private TargetSolver(){}
+
+	/**
+	 * Finds the shortest continuation from a GameState that makes a target.
+	 * From a GameState with nothing on the path this is the shortest path
+	 * on the board. To search as deep as a Difficulty does use
+	 * dif.depth() - 1 moves.
+	 * 
+	 * @param gs - The GameState to start from.
+	 * @param target - The value to make.
+	 * @param maxMoves - Most tiles to add, at most PackedPath.MAX_LENGTH.
+	 * @return - The tiles to add as a packed path, or PackedPath.NONE if
+	 * the target cannot be made within maxMoves.
+	 */
+	public static long shortestPath(GameState gs, int target, int maxMoves)
+	{
+		return shortestPath(gs, target, maxMoves, null);
+	}
+
+	/**
+	 * Finds the shortest continuation from a GameState that makes a target,
+	 * reporting the states tried to a monitor.
+	 * 
+	 * @param gs - The GameState to start from.
+	 * @param target - The value to make.
+	 * @param maxMoves - Most tiles to add, at most PackedPath.MAX_LENGTH.
+	 * @param monitor - Follows the search, may be null.
+	 * @return - The tiles to add as a packed path, or PackedPath.NONE if
+	 * the target cannot be made within maxMoves.
+	 * @throws java.util.concurrent.CancellationException - If the monitor
+	 * is cancelled during the search.
+	 */
+	public static long shortestPath(GameState gs, int target, int maxMoves,
+			SearchMonitor monitor)
+	{
+		if(maxMoves > PackedPath.MAX_LENGTH) {
+			throw new IllegalArgumentException("TargetSolver:shortestPath(" +
+					maxMoves + "): paths are limited to " +
+					PackedPath.MAX_LENGTH + " moves");
+		}
+
+		// The path may already make the target, as long as it is not empty
+		// and does not end on an operator, which could not be submitted.
+		if(gs.getLastCell() != GameState.NO_CELL &&
+				!gs.getBoard().isOperator(gs.getLastCell()) &&
+				gs.getAccumulator() == target)
+			return PackedPath.EMPTY;
+
+		Search search = new Search(gs.getBoard(), target, monitor);
+
+		// Paths ending on a number have an odd number of moves from an empty
+		// path or one ending on an operator, and an even number otherwise.
+		boolean onNumber = gs.getLastCell() != GameState.NO_CELL &&
+				!gs.getBoard().isOperator(gs.getLastCell());
+		try {
+			for(int length = onNumber ? 2 : 1; length <= maxMoves; length += 2)
+			{
+				search.limit = length;
+				if(search.search(gs.getVisited(), gs.getLastCell(),
+						gs.getAccumulator(), 0, PackedPath.EMPTY))
+					return search.found;
+			}
+		} finally {
+			search.finish();
+		}
+
+		return PackedPath.NONE;
+	}
+
+	/**
+	 * One depth limited search, holding what does not change between states.
+	 */
+	private static class Search {
+
+		private final Board board;
+		private final int target;
+		private final SearchMonitor monitor;
+
+		// Operators present on the board.
+		private final boolean multiply;
+		private final boolean add;
+		private final boolean subtract;
+		private final boolean mod;
+		// Smallest and largest numbers on the board.
+		private final int minDigit;
+		private final int maxDigit;
+
+		// Exact length of the paths tried in this iteration.
+		int limit;
+		// The path found.
+		long found = PackedPath.NONE;
+
+		// Bounds on the value, worked out by canReach.
+		private long lo;
+		private long hi;
+
+		private int unreported = 0;
+		private int deepest = 0;
+
+		Search(Board board, int target, SearchMonitor monitor)
+		{
+			this.board = board;
+			this.target = target;
+			this.monitor = monitor;
+
+			boolean m = false, a = false, s = false, r = false;
+			for(long ops = board.operators(); ops != 0; ops &= ops - 1)
+			{
+				switch(board.letter(Long.numberOfTrailingZeros(ops)))
+				{
+				case '*': m = true; break;
+				case '+': a = true; break;
+				case '-': s = true; break;
+				case '%': r = true; break;
+				}
+			}
+			multiply = m;
+			add = a;
+			subtract = s;
+			mod = r;
+
+			int min = 9, max = 0;
+			for(long nums = board.numbers(); nums != 0; nums &= nums - 1)
+			{
+				int d = board.digit(Long.numberOfTrailingZeros(nums));
+				min = Math.min(min, d);
+				max = Math.max(max, d);
+			}
+			minDigit = min;
+			maxDigit = max;
+		}
+
+		/**
+		 * Depth limited search from a state given as its parts.
+		 * 
+		 * @return - True if a path making the target was found.
+		 */
+		boolean search(long visited, int lastCell, int accumulator,
+				int moves, long path)
+		{
+			count(moves);
+
+			if(moves == limit) {
+				if(accumulator != target)
+					return false;
+				found = path;
+				return true;
+			}
+
+			if(!canReach(lastCell, accumulator, limit - moves))
+				return false;
+
+			// Try each set bit of the moves mask, lowest cell first.
+			for(long next = GameState.moves(board, visited, lastCell);
+					next != 0; next &= next - 1)
+			{
+				int cell = Long.numberOfTrailingZeros(next);
+				if(search(visited | (1L << cell), cell,
+						GameState.valueAfter(board, lastCell, accumulator, cell),
+						moves + 1, PackedPath.append(path, cell)))
+					return true;
+			}
+
+			return false;
+		}
+
+		/**
+		 * Can the target be reached from a state in exactly a number of
+		 * moves, going by the bounds on each step.
+		 */
+		private boolean canReach(int lastCell, int accumulator, int moves)
+		{
+			int steps;
+
+			if(lastCell == GameState.NO_CELL) {
+				// The first number sets the value.
+				lo = minDigit;
+				hi = maxDigit;
+				steps = (moves - 1) / 2;
+			} else if(board.isOperator(lastCell)) {
+				// The pending operator is applied to the next number.
+				lo = accumulator;
+				hi = accumulator;
+				step(board.letter(lastCell));
+				steps = (moves - 1) / 2;
+			} else {
+				lo = accumulator;
+				hi = accumulator;
+				steps = moves / 2;
+			}
+
+			for(int i = 0; i < steps && lo <= hi; i++)
+				step((char)0);
+
+			return lo <= target && target <= hi;
+		}
+
+		/**
+		 * Narrows lo and hi to bound the value after applying an operator and
+		 * a number to any value between them.
+		 * 
+		 * @param operator - The operator, or 0 for any on the board.
+		 */
+		private void step(char operator)
+		{
+			long min = Long.MAX_VALUE;
+			long max = Long.MIN_VALUE;
+
+			if(operator == '*' || operator == 0 && multiply) {
+				long a = lo * minDigit, b = lo * maxDigit;
+				long c = hi * minDigit, d = hi * maxDigit;
+				min = Math.min(min, Math.min(Math.min(a, b), Math.min(c, d)));
+				max = Math.max(max, Math.max(Math.max(a, b), Math.max(c, d)));
+			}
+			if(operator == '+' || operator == 0 && add) {
+				min = Math.min(min, lo + minDigit);
+				max = Math.max(max, hi + maxDigit);
+			}
+			if(operator == '-' || operator == 0 && subtract) {
+				min = Math.min(min, lo - maxDigit);
+				max = Math.max(max, hi - minDigit);
+			}
+			if(operator == '%' || operator == 0 && mod) {
+				// A remainder has the sign of the value and is smaller than
+				// both it and the number, mod 0 gives 0.
+				int largest = Math.max(0, maxDigit - 1);
+				min = Math.min(min, lo < 0 ? Math.max(lo, -largest) : 0);
+				max = Math.max(max, hi > 0 ? Math.min(hi, largest) : 0);
+			}
+
+			lo = min;
+			hi = max;
+		}
+
+		/**
+		 * Counts a state tried, reporting to the monitor in batches.
+		 */
+		private void count(int moves)
+		{
+			deepest = Math.max(deepest, moves);
+			if(monitor != null && ++unreported == SearchMonitor.BATCH) {
+				unreported = 0;
+				monitor.expanded(SearchMonitor.BATCH, deepest);
+			}
+		}
+
+		/**
+		 * Reports the states not yet reported.
+		 */
+		void finish()
+		{
+			if(monitor != null)
+				monitor.finished(unreported, deepest);
+			unreported = 0;
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * Counts how often each value is reached, like ValueEnumerator, but merges
+ * GameStates that different paths lead to. Two paths ending in the same cell
+ * with the same visited cells and the same value have identical futures, so
+ * each such state is expanded once and carries the number of paths that
+ * reach it. The counts produced are exactly those of ValueEnumerator.
+ * 
+ * The search keeps a TranspositionTable for each depth and works level by
+ * level. Memory is bounded by giving each table a maximum size: when the
+ * next level's table is full, the states in it are expanded straight away
+ * and then evicted, so fewer paths are merged but none are lost.
+ * 
+ * @author Navid
+ *
+ */
+public class TranspositionSearch {
+
+	// Default maximum number of states held for each depth.
+	public static final int DEFAULT_MAX_ENTRIES = 1 << 15;
+
+	// Used by Exploration.TRANSPOSITION.
+	private static final TranspositionSearch shared =
+			new TranspositionSearch(DEFAULT_MAX_ENTRIES);
+
+	private final int maxEntries;
+	// One table per depth, created when first needed and reused.
+	private TranspositionTable[] tables = new TranspositionTable[0];
+
+	// State of the current search.
+	private ValueHistogram histogram;
+	private int depth;
+	private SearchMonitor monitor;
+	// States expanded but not yet reported to the monitor, and the deepest
+	// level expanded.
+	private int unreported;
+	private int deepest;
+	// States expanded at each level, recorded once the search is over.
+	private long[] levelStates;
+
+	// Statistics, kept until reset.
+	private long lookups = 0;
+	private long hits = 0;
+	private long expanded = 0;
+	private long evictions = 0;
+	private int peakEntries = 0;
+
+	/**
+	 * Constructor - Creates a search whose tables hold at most maxEntries
+	 * states each.
+	 * 
+	 * @param maxEntries - Maximum number of states held for each depth.
+	 */
+	public TranspositionSearch(int maxEntries)
+	{
+		if(maxEntries < 1) {
+			throw new IllegalArgumentException("TranspositionSearch:constructor("
+					+ maxEntries + "): tables must hold at least one state");
+		}
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Gets the search used by Exploration.TRANSPOSITION, so that its
+	 * statistics can be observed.
+	 * 
+	 * @return - The shared search.
+	 */
+	public static TranspositionSearch shared() {return shared;}
+
+	/**
+	 * Counts how often each value is reached down to a specified depth.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, counting the root as one level.
+	 * @return - The counts of each value.
+	 */
+	public ValueHistogram histogram(GameState gs, int depth)
+	{
+		return histogram(gs, depth, null);
+	}
+
+	/**
+	 * Counts how often each value is reached down to a specified depth,
+	 * reporting to a monitor as it goes.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, counting the root as one level.
+	 * @param monitor - Follows the search, may be null.
+	 * @return - The counts of each value.
+	 * @throws java.util.concurrent.CancellationException - If the monitor
+	 * is cancelled during the search.
+	 */
+	public synchronized ValueHistogram histogram(GameState gs, int depth,
+			SearchMonitor monitor)
+	{
+		ValueHistogram result = new ValueHistogram();
+		if(depth <= 0)
+			return result;
+
+		if(tables.length < depth) {
+			TranspositionTable[] grown = new TranspositionTable[depth];
+			System.arraycopy(tables, 0, grown, 0, tables.length);
+			tables = grown;
+		}
+		for(int i = 0; i < depth; i++)
+		{
+			if(tables[i] == null)
+				tables[i] = new TranspositionTable(maxEntries);
+		}
+
+		histogram = result;
+		this.depth = depth;
+		this.monitor = monitor;
+		unreported = 0;
+		deepest = 0;
+		levelStates = new long[depth];
+
+		try {
+			tables[0].add(gs.getVisited(), gs.getLastCell(),
+					gs.getAccumulator(), 1);
+			expand(gs.getBoard(), 0);
+			if(monitor != null)
+				monitor.finished(unreported, deepest);
+		} finally {
+			// A cancelled search leaves states behind, so always empty the
+			// tables ready for the next search.
+			for(int i = 0; i < depth; i++)
+				tables[i].clear();
+			EngineMetrics.expanded(levelStates);
+			histogram = null;
+			this.monitor = null;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Expands every state in the table for a level, adding its children to
+	 * the table for the next level and expanding that whenever it fills up.
+	 * 
+	 * @param board - The shared board.
+	 * @param level - The level to expand.
+	 */
+	private void expand(Board board, int level)
+	{
+		TranspositionTable table = tables[level];
+		boolean last = level + 1 >= depth;
+		TranspositionTable next = last ? null : tables[level + 1];
+
+		peakEntries = Math.max(peakEntries, table.size());
+		deepest = Math.max(deepest, level);
+
+		for(int e = 0; e < table.size(); e++)
+		{
+			long visited = table.visited(e);
+			int lastCell = table.lastCell(e);
+			int accumulator = table.accumulator(e);
+			long count = table.count(e);
+
+			histogram.add(accumulator, count);
+			expanded++;
+			levelStates[level]++;
+			if(monitor != null && ++unreported == SearchMonitor.BATCH) {
+				unreported = 0;
+				monitor.expanded(SearchMonitor.BATCH, deepest);
+			}
+
+			if(last)
+				continue;
+
+			for(long moves = GameState.moves(board, visited, lastCell);
+					moves != 0; moves &= moves - 1)
+			{
+				int cell = Long.numberOfTrailingZeros(moves);
+				long v = visited | (1L << cell);
+				int value = GameState.valueAfter(board, lastCell, accumulator,
+						cell);
+
+				lookups++;
+				int added = next.add(v, cell, value, count);
+				if(added < 0) {
+					// The next level is full, so expand and evict its states
+					// to make room.
+					evictions += next.size();
+					expand(board, level + 1);
+					next.clear();
+					added = next.add(v, cell, value, count);
+				}
+				if(added > 0)
+					hits++;
+			}
+		}
+
+		if(!last && next.size() > 0) {
+			expand(board, level + 1);
+			next.clear();
+		}
+	}
+
+	/**
+	 * Gets the number of children looked up in the tables.
+	 * @return - The number of lookups.
+	 */
+	public synchronized long lookups() {return lookups;}
+
+	/**
+	 * Gets the number of children merged into a state already in a table.
+	 * @return - The number of hits.
+	 */
+	public synchronized long hits() {return hits;}
+
+	/**
+	 * Gets the fraction of lookups that were merged.
+	 * @return - The hit rate, 0 if there have been no lookups.
+	 */
+	public synchronized double hitRate()
+	{
+		return lookups == 0 ? 0 : (double)hits / lookups;
+	}
+
+	/**
+	 * Gets the number of distinct states expanded.
+	 * @return - The number of states expanded.
+	 */
+	public synchronized long expanded() {return expanded;}
+
+	/**
+	 * Gets the number of states evicted early because a table was full.
+	 * @return - The number of evictions.
+	 */
+	public synchronized long evictions() {return evictions;}
+
+	/**
+	 * Gets the most states held in one table.
+	 * @return - The peak table size.
+	 */
+	public synchronized int peakEntries() {return peakEntries;}
+
+	/**
+	 * Gets the maximum number of states held for each depth.
+	 * @return - The maximum table size.
+	 */
+	public int maxEntries() {return maxEntries;}
+
+	/**
+	 * Gets the number of bytes held by the tables.
+	 * @return - The number of bytes.
+	 */
+	public synchronized long tableBytes()
+	{
+		long bytes = 0;
+		for(TranspositionTable t : tables)
+		{
+			if(t != null)
+				bytes += t.bytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Resets the statistics.
+	 */
+	public synchronized void resetStatistics()
+	{
+		lookups = 0;
+		hits = 0;
+		expanded = 0;
+		evictions = 0;
+		peakEntries = 0;
+	}
+}
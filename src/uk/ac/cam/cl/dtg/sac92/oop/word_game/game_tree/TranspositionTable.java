@@ -0,0 +1,141 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * A fixed size hash table of GameStates, each with the number of paths that
+ * reach it. A state is identified by its visited mask, last cell and value
+ * (the board is shared), so two paths that end in the same state are merged
+ * into one entry whose count is the sum of theirs.
+ * 
+ * Entries are kept in parallel arrays with open addressing so adding a state
+ * allocates nothing.
+ * 
+ * @author Navid
+ *
+ */
+class TranspositionTable {
+
+	private final long[] visited;
+	private final int[] lastCells;
+	private final int[] accumulators;
+	private final long[] counts;
+	// Which slots are in use, listed in the order they were filled so the
+	// table can be iterated and cleared without scanning every slot.
+	private final boolean[] used;
+	private final int[] filled;
+	private final int maxEntries;
+	private final int mask;
+	private int size = 0;
+
+	/**
+	 * Constructor - Creates a table that holds at most maxEntries states.
+	 * 
+	 * @param maxEntries - Maximum number of states.
+	 */
+	TranspositionTable(int maxEntries)
+	{
+		if(maxEntries < 1) {
+			throw new IllegalArgumentException("TranspositionTable:constructor("
+					+ maxEntries + "): table must hold at least one state");
+		}
+
+		// Keep the load factor at most a half so probes stay short.
+		int slots = Integer.highestOneBit(maxEntries * 2 - 1) << 1;
+		visited = new long[slots];
+		lastCells = new int[slots];
+		accumulators = new int[slots];
+		counts = new long[slots];
+		used = new boolean[slots];
+		filled = new int[maxEntries];
+		this.maxEntries = maxEntries;
+		mask = slots - 1;
+	}
+
+	/**
+	 * Adds paths reaching a state. If the state is already in the table its
+	 * count is increased, otherwise it takes a new entry if there is room.
+	 * 
+	 * @param v - Visited mask of the state.
+	 * @param lastCell - Last cell of the state.
+	 * @param accumulator - Value of the state.
+	 * @param count - Number of paths reaching it.
+	 * @return - -1 if the table is full and the state is not in it, 0 if it
+	 *           was added as a new entry and 1 if it was merged.
+	 */
+	int add(long v, int lastCell, int accumulator, long count)
+	{
+		int slot = hash(v, lastCell, accumulator) & mask;
+
+		while(used[slot])
+		{
+			if(visited[slot] == v && lastCells[slot] == lastCell &&
+					accumulators[slot] == accumulator) {
+				counts[slot] += count;
+				return 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if(size == maxEntries)
+			return -1;
+
+		used[slot] = true;
+		visited[slot] = v;
+		lastCells[slot] = lastCell;
+		accumulators[slot] = accumulator;
+		counts[slot] = count;
+		filled[size++] = slot;
+		return 0;
+	}
+
+	/**
+	 * Removes every entry.
+	 */
+	void clear()
+	{
+		for(int i = 0; i < size; i++)
+			used[filled[i]] = false;
+		size = 0;
+	}
+
+	/**
+	 * Gets the number of entries.
+	 * @return - The number of entries.
+	 */
+	int size() {return size;}
+
+	/**
+	 * Gets the maximum number of entries.
+	 * @return - The maximum number of entries.
+	 */
+	int maxEntries() {return maxEntries;}
+
+	/**
+	 * Gets the number of bytes held by the table's arrays.
+	 * @return - The number of bytes.
+	 */
+	long bytes()
+	{
+		return (long)used.length * (8 + 4 + 4 + 8 + 1) + 4L * filled.length;
+	}
+
+	// The entries are numbered 0 to size()-1 in the order they were added.
+
+	long visited(int entry) {return visited[filled[entry]];}
+
+	int lastCell(int entry) {return lastCells[filled[entry]];}
+
+	int accumulator(int entry) {return accumulators[filled[entry]];}
+
+	long count(int entry) {return counts[filled[entry]];}
+
+	/**
+	 * Mixes the parts of a state into a hash.
+	 */
+	private static int hash(long v, int lastCell, int accumulator)
+	{
+		long h = v * 0x9E3779B97F4A7C15L;
+		h ^= (lastCell * 31L + accumulator) * 0xC2B2AE3D27D4EB4FL;
+		h ^= h >>> 29;
+		return (int)(h ^ (h >>> 32));
+	}
+}
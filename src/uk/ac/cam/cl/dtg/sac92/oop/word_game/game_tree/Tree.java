@@ -1,7 +1,7 @@
 package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.LinkedList;
 /**
  * Represents a tree.
  * Wraps the root node and provides some tree based algorithms.
@@ -21,6 +21,15 @@ public class Tree<T>
 	{
 		root = new Node<T>(value);
 	}
+	
+	/**
+	 * Constructor - Uses the supplied node as the root, e.g. a lazy node.
+	 * @param root - The root node.
+	 */
+	public Tree(Node<T> root)
+	{
+		this.root = root;
+	}
 	 
 	/**
 	 * Gets the child nodes of the root.
@@ -76,39 +85,78 @@ public class Tree<T>
 	 */
 	public ArrayList<T> BreadthFirstSearch(int depth, Tree<T> tree)
 	{
-		LinkedList<Node<T>> workQueue = new LinkedList<Node<T>>();
-		workQueue.offer(tree.getRoot());
-		// Use the internal implementation of BFS with a queue just containing
-		// the root node to start. 
-		return BreadthFirstSearch(depth, workQueue);
+		final ArrayList<T> result = new ArrayList<T>();
+		tree.breadthFirst(depth, new TreeVisitor<T>() {
+			@Override
+			public void visit(T value, int depth)
+			{
+				result.add(value);
+			}
+		});
+		return result;
+	}
+	
+	/**
+	 * Performs a breadth first traversal of this tree to a specified depth
+	 * and returns the values at each depth separately.
+	 * @param depth - The depth to traverse down to.
+	 * @return - ArrayList holding an ArrayList of T for each depth, the root 
+	 *           is at index 0.
+	 */
+	public ArrayList<ArrayList<T>> levels(int depth)
+	{
+		final ArrayList<ArrayList<T>> levels = new ArrayList<ArrayList<T>>();
+		breadthFirst(depth, new TreeVisitor<T>() {
+			@Override
+			public void visit(T value, int depth)
+			{
+				if(depth == levels.size())
+					levels.add(new ArrayList<T>());
+				levels.get(depth).add(value);
+			}
+		});
+		return levels;
 	}
 	
 	/**
-	 * Actual implementation of the BreadthFirstSearch.
+	 * Performs a breadth first traversal of this tree to a specified depth,
+	 * passing each value and its depth to a visitor. The traversal is
+	 * iterative and uses a single queue, so it does not recurse or copy 
+	 * results however large the tree is.
 	 * @param depth - The depth to traverse down to.
-	 * @param workQueue - The queue to process. 
-	 * @return - ArrayList of T obtained by traversal. 
+	 * @param visitor - Receives each value and its depth.
 	 */
-	private ArrayList<T> BreadthFirstSearch(
-			int depth, LinkedList<Node<T>> workQueue)
+	public void breadthFirst(int depth, TreeVisitor<T> visitor)
 	{
-		ArrayList<T> result= new ArrayList<T>();
-		LinkedList<Node<T>> newWorkQueue = new LinkedList<Node<T>>();
+		if(depth <= 0)
+			return;
+		
+		long start = System.nanoTime();
+		ArrayDeque<Node<T>> workQueue = new ArrayDeque<Node<T>>();
+		workQueue.offer(root);
 		
-		// If we have reached the end of the tree or the depth limit then stop.
-		if ((workQueue.isEmpty()) || (depth == 0))
-			return result;
+		// The queue holds the rest of the current level followed by the part
+		// of the next level found so far, so count what is left of the 
+		// current level to know when the depth changes.
+		int level = 0;
+		int remaining = 1;
 		
-		// Process each node in the work queue,
-		// using its children to make the new queue.
-		for(Node<T> n : workQueue) {
-			result.add(n.getValue());
-			for(Node<T> nc : n.getChildren())
-				newWorkQueue.offer(nc);
+		while(!workQueue.isEmpty())
+		{
+			Node<T> n = workQueue.poll();
+			visitor.visit(n.getValue(), level);
+			
+			if(level + 1 < depth) {
+				for(Node<T> nc : n.getChildren())
+					workQueue.offer(nc);
+			}
+			
+			if(--remaining == 0) {
+				level++;
+				remaining = workQueue.size();
+			}
 		}
 		
-		// Recursively create the result.
-		result.addAll(BreadthFirstSearch(depth-1, newWorkQueue));
-		return result;
+		EngineMetrics.phase(EngineMetrics.Phase.BFS, System.nanoTime() - start);
 	}
 }
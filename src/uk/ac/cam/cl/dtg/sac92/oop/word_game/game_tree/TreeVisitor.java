@@ -0,0 +1,19 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * Receives the values of the nodes of a Tree as it is traversed.
+ * 
+ * @author Navid
+ *
+ * @param <T> - Parameter of Tree.
+ */
+public interface TreeVisitor<T> {
+
+	/**
+	 * Called once for each node traversed.
+	 * 
+	 * @param value - Value of the node.
+	 * @param depth - Depth of the node, the root is at depth 0.
+	 */
+	void visit(T value, int depth);
+}
@@ -0,0 +1,401 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Walks the GameStates reachable from a root depth first and reports the
+ * value of each one to a ValueVisitor as it is found. It visits the same
+ * states as a GameTree of the same depth but never builds the tree: the only
+ * memory used is the recursion, which is bounded by the depth, and the
+ * states are kept as primitives so walking allocates nothing.
+ * 
+ * The walk can also be split across cores with fork/join, in which case each
+ * task counts into its own ValueHistogram and they are merged as the tasks
+ * finish, giving the same counts as the serial walk.
+ * 
+ * Either walk can be given a SearchMonitor, which is told how many states
+ * have been visited and can cancel the walk part way through, and a
+ * WitnessIndex, in which case the path to each state is carried along
+ * packed in a long and the shortest path to each value is kept. The tasks
+ * of a parallel walk share the one index, each offering its paths in
+ * batches, so it holds no more values than it would for a serial walk.
+ * 
+ * @author Navid
+ *
+ */
+public abstract class ValueEnumerator {
+
+	// Tasks are forked for the states above this depth, i.e. for the
+	// initial states and the second moves.
+	private static final int SPLIT_DEPTH = 2;
+
+	// Shared by all parallel walks, created when first needed.
+	private static ForkJoinPool pool;
+
+	private ValueEnumerator(){}
+
+	/**
+	 * Reports the value of every GameState down to a specified depth, i.e.
+	 * the states that would be in a GameTree built with the same depth.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, counting the root as one level.
+	 * @param visitor - Receives each value and its depth.
+	 */
+	public static void enumerate(GameState gs, int depth, ValueVisitor visitor)
+	{
+		if(depth <= 0)
+			return;
+
+		enumerate(gs.getBoard(), gs.getVisited(), gs.getLastCell(),
+				gs.getAccumulator(), 0, depth, visitor);
+	}
+
+	/**
+	 * Actual implementation of the enumeration, the GameState is passed as
+	 * its parts.
+	 * 
+	 * @param board - The shared board.
+	 * @param visited - Mask of the cells on the path.
+	 * @param lastCell - Last cell on the path.
+	 * @param accumulator - Value of the path.
+	 * @param level - Depth of this state.
+	 * @param depth - Depth to search to.
+	 * @param visitor - Receives each value and its depth.
+	 */
+	static void enumerate(Board board, long visited, int lastCell,
+			int accumulator, int level, int depth, ValueVisitor visitor)
+	{
+		visitor.visit(accumulator, level);
+
+		if(level + 1 >= depth)
+			return;
+
+		// Visit each set bit of the moves mask, lowest cell first.
+		for(long moves = GameState.moves(board, visited, lastCell);
+				moves != 0; moves &= moves - 1)
+		{
+			int cell = Long.numberOfTrailingZeros(moves);
+			enumerate(board, visited | (1L << cell), cell,
+					GameState.valueAfter(board, lastCell, accumulator, cell),
+					level + 1, depth, visitor);
+		}
+	}
+
+	/**
+	 * Reports the value of every GameState down to a specified depth along
+	 * with the path to it.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, at most PackedPath.MAX_LENGTH + 1.
+	 * @param visitor - Receives each value, its depth and its path.
+	 */
+	public static void enumerate(GameState gs, int depth, PathVisitor visitor)
+	{
+		checkPathDepth(depth);
+		if(depth <= 0)
+			return;
+
+		enumerate(gs.getBoard(), gs.getVisited(), gs.getLastCell(),
+				gs.getAccumulator(), PackedPath.EMPTY, 0, depth, visitor);
+	}
+
+	/**
+	 * Implementation of the enumeration with paths, as enumerate() above
+	 * but carrying the packed path to each state.
+	 * 
+	 * @param board - The shared board.
+	 * @param visited - Mask of the cells on the path.
+	 * @param lastCell - Last cell on the path.
+	 * @param accumulator - Value of the path.
+	 * @param path - The moves from the root.
+	 * @param level - Depth of this state.
+	 * @param depth - Depth to search to.
+	 * @param visitor - Receives each value, its depth and its path.
+	 */
+	static void enumerate(Board board, long visited, int lastCell,
+			int accumulator, long path, int level, int depth,
+			PathVisitor visitor)
+	{
+		visitor.visit(accumulator, level, path);
+
+		if(level + 1 >= depth)
+			return;
+
+		for(long moves = GameState.moves(board, visited, lastCell);
+				moves != 0; moves &= moves - 1)
+		{
+			int cell = Long.numberOfTrailingZeros(moves);
+			enumerate(board, visited | (1L << cell), cell,
+					GameState.valueAfter(board, lastCell, accumulator, cell),
+					PackedPath.append(path, cell), level + 1, depth, visitor);
+		}
+	}
+
+	/**
+	 * Counts how often each value is reached down to a specified depth,
+	 * walking the GameStates on the current thread.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, counting the root as one level.
+	 * @return - The counts of each value.
+	 */
+	public static ValueHistogram histogram(GameState gs, int depth)
+	{
+		return histogram(gs, depth, null);
+	}
+
+	/**
+	 * Counts how often each value is reached down to a specified depth,
+	 * walking the GameStates on the current thread and reporting to a
+	 * monitor as it goes.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, counting the root as one level.
+	 * @param monitor - Follows the walk, may be null.
+	 * @return - The counts of each value.
+	 * @throws java.util.concurrent.CancellationException - If the monitor
+	 * is cancelled during the walk.
+	 */
+	public static ValueHistogram histogram(GameState gs, int depth,
+			SearchMonitor monitor)
+	{
+		return histogram(gs, depth, monitor, null);
+	}
+
+	/**
+	 * Counts how often each value is reached down to a specified depth,
+	 * walking the GameStates on the current thread, and keeps the shortest
+	 * path to each value.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, counting the root as one level.
+	 * @param monitor - Follows the walk, may be null.
+	 * @param witnesses - Receives the paths, may be null.
+	 * @return - The counts of each value.
+	 * @throws java.util.concurrent.CancellationException - If the monitor
+	 * is cancelled during the walk.
+	 */
+	public static ValueHistogram histogram(GameState gs, int depth,
+			SearchMonitor monitor, WitnessIndex witnesses)
+	{
+		if(witnesses != null)
+			checkPathDepth(depth);
+
+		ValueHistogram histogram = new ValueHistogram();
+		if(depth > 0) {
+			WitnessIndex.Batch batch = witnesses == null ? null
+					: new WitnessIndex.Batch(witnesses);
+			walk(gs.getBoard(), gs.getVisited(), gs.getLastCell(),
+					gs.getAccumulator(), PackedPath.EMPTY, 0, depth, histogram,
+					batch, monitor);
+			if(batch != null)
+				batch.flush();
+		}
+		return histogram;
+	}
+
+	/**
+	 * Enumerates from a state given as its parts, reporting the states
+	 * visited to a monitor and their paths to a PathVisitor, e.g. a
+	 * WitnessIndex, if given them.
+	 */
+	private static void walk(Board board, long visited, int lastCell,
+			int accumulator, long path, int level, int depth,
+			ValueVisitor visitor, final PathVisitor witnesses,
+			SearchMonitor monitor)
+	{
+		EngineMetrics.LevelCounter counted = new EngineMetrics.LevelCounter(
+				visitor);
+		visitor = counted;
+		SearchMonitor.MonitoredVisitor watched = null;
+		if(monitor != null)
+			visitor = watched = monitor.watch(visitor);
+
+		if(witnesses == null) {
+			enumerate(board, visited, lastCell, accumulator, level, depth,
+					visitor);
+		} else {
+			final ValueVisitor values = visitor;
+			enumerate(board, visited, lastCell, accumulator, path, level,
+					depth, new PathVisitor() {
+						@Override
+						public void visit(int value, int depth, long path)
+						{
+							values.visit(value, depth);
+							witnesses.visit(value, depth, path);
+						}
+					});
+		}
+
+		if(watched != null)
+			watched.finish();
+		counted.report();
+	}
+
+	/**
+	 * Checks that paths down to a depth fit in a packed path.
+	 */
+	private static void checkPathDepth(int depth)
+	{
+		if(depth - 1 > PackedPath.MAX_LENGTH) {
+			throw new IllegalArgumentException(
+					"ValueEnumerator:checkPathDepth(" + depth +
+					"): paths are limited to " + PackedPath.MAX_LENGTH +
+					" moves");
+		}
+	}
+
+	/**
+	 * Counts how often each value is reached down to a specified depth,
+	 * splitting the walk across the cores. The result is the same as
+	 * histogram(gs, depth).
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, counting the root as one level.
+	 * @return - The counts of each value.
+	 */
+	public static ValueHistogram parallelHistogram(GameState gs, int depth)
+	{
+		return parallelHistogram(gs, depth, null);
+	}
+
+	/**
+	 * Counts how often each value is reached down to a specified depth,
+	 * splitting the walk across the cores and reporting to a monitor as it
+	 * goes.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, counting the root as one level.
+	 * @param monitor - Follows the walk, may be null.
+	 * @return - The counts of each value.
+	 * @throws java.util.concurrent.CancellationException - If the monitor
+	 * is cancelled during the walk.
+	 */
+	public static ValueHistogram parallelHistogram(GameState gs, int depth,
+			SearchMonitor monitor)
+	{
+		return parallelHistogram(gs, depth, monitor, null);
+	}
+
+	/**
+	 * Counts how often each value is reached down to a specified depth,
+	 * splitting the walk across the cores, and keeps the shortest path to
+	 * each value. The tasks offer their paths to the index in batches, and
+	 * it keeps the same paths whatever order they come in, so they are
+	 * those of the serial walk even if the index fills up.
+	 * 
+	 * @param gs - The root GameState.
+	 * @param depth - Depth to search to, counting the root as one level.
+	 * @param monitor - Follows the walk, may be null.
+	 * @param witnesses - Receives the paths, may be null.
+	 * @return - The counts of each value.
+	 * @throws java.util.concurrent.CancellationException - If the monitor
+	 * is cancelled during the walk.
+	 */
+	public static ValueHistogram parallelHistogram(GameState gs, int depth,
+			SearchMonitor monitor, WitnessIndex witnesses)
+	{
+		if(witnesses != null)
+			checkPathDepth(depth);
+		if(depth <= 0)
+			return new ValueHistogram();
+
+		return pool().invoke(new HistogramTask(gs.getBoard(),
+				gs.getVisited(), gs.getLastCell(), gs.getAccumulator(),
+				PackedPath.EMPTY, 0, depth, monitor, witnesses));
+	}
+
+	/**
+	 * Gets the pool used for parallel walks.
+	 * @return - The pool.
+	 */
+	private static synchronized ForkJoinPool pool()
+	{
+		if(pool == null)
+			pool = new ForkJoinPool();
+		return pool;
+	}
+
+	/**
+	 * Counts the values reachable from one GameState. Near the root it forks
+	 * a task per move, further down it walks the rest serially. When paths
+	 * are kept each walk offers them to the shared WitnessIndex in batches.
+	 */
+	private static class HistogramTask extends RecursiveTask<ValueHistogram> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Board board;
+		private final long visited;
+		private final int lastCell;
+		private final int accumulator;
+		private final long path;
+		private final int level;
+		private final int depth;
+		private final SearchMonitor monitor;
+		// Shared by every task, null if paths are not kept.
+		private final WitnessIndex witnesses;
+
+		HistogramTask(Board board, long visited, int lastCell,
+				int accumulator, long path, int level, int depth,
+				SearchMonitor monitor, WitnessIndex witnesses)
+		{
+			this.board = board;
+			this.visited = visited;
+			this.lastCell = lastCell;
+			this.accumulator = accumulator;
+			this.path = path;
+			this.level = level;
+			this.depth = depth;
+			this.monitor = monitor;
+			this.witnesses = witnesses;
+		}
+
+		@Override
+		protected ValueHistogram compute()
+		{
+			ValueHistogram histogram = new ValueHistogram();
+
+			if(level >= SPLIT_DEPTH) {
+				WitnessIndex.Batch batch = witnesses == null ? null
+						: new WitnessIndex.Batch(witnesses);
+				walk(board, visited, lastCell, accumulator, path, level, depth,
+						histogram, batch, monitor);
+				if(batch != null)
+					batch.flush();
+				return histogram;
+			}
+
+			histogram.visit(accumulator, level);
+			if(witnesses != null)
+				witnesses.offer(accumulator, path);
+			EngineMetrics.expanded(level, 1);
+			if(monitor != null)
+				monitor.expanded(1, level);
+
+			if(level + 1 >= depth)
+				return histogram;
+
+			// Fork a task for each move then merge their counts.
+			ArrayList<HistogramTask> tasks = new ArrayList<HistogramTask>();
+			for(long moves = GameState.moves(board, visited, lastCell);
+					moves != 0; moves &= moves - 1)
+			{
+				int cell = Long.numberOfTrailingZeros(moves);
+				tasks.add(new HistogramTask(board, visited | (1L << cell),
+						cell, GameState.valueAfter(board, lastCell,
+								accumulator, cell),
+						PackedPath.append(path, cell), level + 1, depth,
+						monitor, witnesses));
+			}
+
+			for(HistogramTask t : invokeAll(tasks))
+				histogram.merge(t.join());
+
+			return histogram;
+		}
+	}
+}
@@ -0,0 +1,296 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * Counts how often each value is reached. Only one entry is kept per distinct
+ * value, so the memory used does not grow with the number of GameStates.
+ *
+ * Values and counts are held in primitive arrays with open addressing, so
+ * counting allocates nothing. Values are ranked by ascending frequency, with
+ * equally frequent values in ascending order, and a value at a given rank is
+ * found by selection rather than by sorting.
+ *
+ * A histogram can be made read-only, after which adding to it throws, so
+ * that one shared between callers, e.g. from the DifficultyGenerator
+ * cache, cannot be changed by any of them.
+ *
+ * @author Navid
+ *
+ */
+public class ValueHistogram implements ValueVisitor {
+
+	private static final int INITIAL_SLOTS = 64;
+
+	private int[] values = new int[INITIAL_SLOTS];
+	private long[] counts = new long[INITIAL_SLOTS];
+	private boolean[] used = new boolean[INITIAL_SLOTS];
+	private int distinct = 0;
+	private long total = 0;
+	private boolean readOnly = false;
+
+	@Override
+	public void visit(int value, int depth)
+	{
+		add(value, 1);
+	}
+
+	/**
+	 * Adds to the count of a value.
+	 *
+	 * @param value - The value.
+	 * @param count - How many times it was reached.
+	 */
+	public void add(int value, long count)
+	{
+		if(readOnly) {
+			throw new UnsupportedOperationException("ValueHistogram:add(" +
+					value + ", " + count + "): histogram is read-only");
+		}
+
+		int slot = find(value);
+
+		if(!used[slot]) {
+			// Keep the load factor at most a half so probes stay short.
+			if(2 * (distinct + 1) > used.length) {
+				grow();
+				slot = find(value);
+			}
+			used[slot] = true;
+			values[slot] = value;
+			distinct++;
+		}
+
+		counts[slot] += count;
+		total += count;
+	}
+
+	/**
+	 * Adds all the counts of another histogram to this one.
+	 *
+	 * @param other - The histogram to add.
+	 */
+	public void merge(ValueHistogram other)
+	{
+		for(int slot = 0; slot < other.used.length; slot++)
+		{
+			if(other.used[slot])
+				add(other.values[slot], other.counts[slot]);
+		}
+	}
+
+	/**
+	 * Stops the histogram being added to from now on.
+	 *
+	 * @return - This histogram.
+	 */
+	ValueHistogram makeReadOnly()
+	{
+		readOnly = true;
+		return this;
+	}
+
+	/**
+	 * Is the histogram read-only.
+	 * @return - True if adding to it throws.
+	 */
+	public boolean isReadOnly() {return readOnly;}
+
+	/**
+	 * Gets how many times a value was reached.
+	 *
+	 * @param value - The value.
+	 * @return - The count, 0 if it was never reached.
+	 */
+	public long count(int value)
+	{
+		int slot = find(value);
+		return used[slot] ? counts[slot] : 0;
+	}
+
+	/**
+	 * Gets the number of distinct values reached.
+	 * @return - The number of distinct values.
+	 */
+	public int distinct() {return distinct;}
+
+	/**
+	 * Gets the total of all the counts.
+	 * @return - The total.
+	 */
+	public long total() {return total;}
+
+	/**
+	 * Gets the value at a rank, where the rarest value has rank 0. Uses
+	 * selection so it takes time linear in the number of distinct values.
+	 *
+	 * @param rank - The rank, from 0 to distinct()-1.
+	 * @return - The value.
+	 */
+	public int valueAtRank(int rank)
+	{
+		if(rank < 0 || rank >= distinct) {
+			throw new IndexOutOfBoundsException("ValueHistogram:valueAtRank("
+					+ rank + "): " + distinct + " distinct values");
+		}
+
+		int[] v = new int[distinct];
+		long[] c = new long[distinct];
+		copyEntries(v, c);
+
+		// Quickselect, narrowing [lo, hi] to the part holding the rank.
+		int lo = 0;
+		int hi = distinct - 1;
+		while(lo < hi)
+		{
+			int p = partition(v, c, lo, hi);
+			if(p == rank) {
+				return v[p];
+			} else if(p < rank) {
+				lo = p + 1;
+			} else {
+				hi = p - 1;
+			}
+		}
+
+		return v[rank];
+	}
+
+	/**
+	 * Gets the value at a rarity percentile, e.g. 0.1 gives a value rarer
+	 * than about 90% of the distinct values.
+	 *
+	 * @param p - The percentile, from 0 to 1.
+	 * @return - The value.
+	 */
+	public int valueAtRarity(double p)
+	{
+		int rank = (int)(p * distinct);
+		return valueAtRank(Math.max(0, Math.min(rank, distinct - 1)));
+	}
+
+	/**
+	 * Lists the distinct values in ascending order of frequency, values with
+	 * the same frequency are in ascending order.
+	 *
+	 * @return - The distinct values, least frequent first.
+	 */
+	public int[] rankedValues()
+	{
+		int[] v = new int[distinct];
+		long[] c = new long[distinct];
+		copyEntries(v, c);
+		sort(v, c, 0, distinct - 1);
+		return v;
+	}
+
+	/**
+	 * Finds the slot holding a value, or the empty slot it would go in.
+	 */
+	private int find(int value)
+	{
+		int mask = used.length - 1;
+		int h = value * 0x9E3779B9;
+		int slot = (h ^ (h >>> 16)) & mask;
+
+		while(used[slot] && values[slot] != value)
+			slot = (slot + 1) & mask;
+
+		return slot;
+	}
+
+	/**
+	 * Doubles the number of slots and re-inserts every entry.
+	 */
+	private void grow()
+	{
+		int[] oldValues = values;
+		long[] oldCounts = counts;
+		boolean[] oldUsed = used;
+
+		values = new int[oldUsed.length * 2];
+		counts = new long[oldUsed.length * 2];
+		used = new boolean[oldUsed.length * 2];
+
+		for(int slot = 0; slot < oldUsed.length; slot++)
+		{
+			if(oldUsed[slot]) {
+				int s = find(oldValues[slot]);
+				used[s] = true;
+				values[s] = oldValues[slot];
+				counts[s] = oldCounts[slot];
+			}
+		}
+	}
+
+	/**
+	 * Copies the values and their counts into arrays of length distinct().
+	 */
+	private void copyEntries(int[] v, long[] c)
+	{
+		int i = 0;
+		for(int slot = 0; slot < used.length; slot++)
+		{
+			if(used[slot]) {
+				v[i] = values[slot];
+				c[i] = counts[slot];
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Sorts entries lo to hi into rank order.
+	 */
+	private static void sort(int[] v, long[] c, int lo, int hi)
+	{
+		while(lo < hi)
+		{
+			int p = partition(v, c, lo, hi);
+			// Recurse into the smaller part to bound the stack depth.
+			if(p - lo < hi - p) {
+				sort(v, c, lo, p - 1);
+				lo = p + 1;
+			} else {
+				sort(v, c, p + 1, hi);
+				hi = p - 1;
+			}
+		}
+	}
+
+	/**
+	 * Partitions entries lo to hi around the middle entry and returns where
+	 * it ends up, entries before it rank lower and entries after it higher.
+	 */
+	private static int partition(int[] v, long[] c, int lo, int hi)
+	{
+		swap(v, c, (lo + hi) >>> 1, hi);
+		int store = lo;
+
+		for(int i = lo; i < hi; i++)
+		{
+			if(ranksBefore(v[i], c[i], v[hi], c[hi]))
+				swap(v, c, i, store++);
+		}
+
+		swap(v, c, store, hi);
+		return store;
+	}
+
+	/**
+	 * Does the first entry rank before the second, i.e. is it rarer, or as
+	 * rare with a smaller value.
+	 */
+	private static boolean ranksBefore(int v1, long c1, int v2, long c2)
+	{
+		return c1 < c2 || (c1 == c2 && v1 < v2);
+	}
+
+	private static void swap(int[] v, long[] c, int i, int j)
+	{
+		int tv = v[i];
+		v[i] = v[j];
+		v[j] = tv;
+		long tc = c[i];
+		c[i] = c[j];
+		c[j] = tc;
+	}
+}
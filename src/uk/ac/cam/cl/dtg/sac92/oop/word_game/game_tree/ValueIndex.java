@@ -0,0 +1,173 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * Numbers the distinct values it is given 0, 1, 2... in the order they are
+ * first seen, so that data about each value can be kept in plain arrays.
+ * Uses open addressing like ValueHistogram so lookups allocate nothing. A
+ * value can be replaced by another, which takes over its index, so the
+ * indices stay 0 to size-1.
+ * 
+ * @author Navid
+ *
+ */
+class ValueIndex {
+
+	private static final int INITIAL_SLOTS = 64;
+
+	private int[] values = new int[INITIAL_SLOTS];
+	// Index of the value in each slot plus one, 0 for an empty slot.
+	private int[] indices = new int[INITIAL_SLOTS];
+	private int size = 0;
+
+	/**
+	 * Gets the index of a value, giving it the next index if it is new.
+	 * 
+	 * @param value - The value.
+	 * @return - Its index.
+	 */
+	int add(int value)
+	{
+		int slot = find(value);
+		if(indices[slot] == 0) {
+			// Keep the load factor at most a half so probes stay short.
+			if(2 * (size + 1) > indices.length) {
+				grow();
+				slot = find(value);
+			}
+			values[slot] = value;
+			indices[slot] = ++size;
+		}
+		return indices[slot] - 1;
+	}
+
+	/**
+	 * Gets the index of a value.
+	 * 
+	 * @param value - The value.
+	 * @return - Its index, or -1 if it has not been added.
+	 */
+	int indexOf(int value)
+	{
+		return indices[find(value)] - 1;
+	}
+
+	/**
+	 * Replaces a value by one that has not been added, giving it the old
+	 * value's index.
+	 * 
+	 * @param old - The value to remove, which must have been added.
+	 * @param value - The value to add in its place.
+	 * @return - The index they share.
+	 */
+	int replace(int old, int value)
+	{
+		int slot = find(old);
+		int index = indices[slot];
+		if(index == 0) {
+			throw new IllegalArgumentException("ValueIndex:replace(" + old +
+					", " + value + "): " + old + " has not been added");
+		}
+		remove(slot);
+
+		slot = find(value);
+		values[slot] = value;
+		indices[slot] = index;
+		return index - 1;
+	}
+
+	/**
+	 * Gets the number of values added.
+	 * @return - The number of values.
+	 */
+	int size() {return size;}
+
+	/**
+	 * Gets the number of bytes held by the index's arrays.
+	 * @return - The number of bytes.
+	 */
+	long bytes()
+	{
+		return 4L * values.length + 4L * indices.length;
+	}
+
+	/**
+	 * Lists the values in index order.
+	 * @return - The values.
+	 */
+	int[] values()
+	{
+		int[] v = new int[size];
+		for(int slot = 0; slot < indices.length; slot++)
+		{
+			if(indices[slot] != 0)
+				v[indices[slot] - 1] = values[slot];
+		}
+		return v;
+	}
+
+	/**
+	 * Finds the slot holding a value, or the empty slot it would go in.
+	 */
+	private int find(int value)
+	{
+		int mask = indices.length - 1;
+		int slot = home(value, mask);
+
+		while(indices[slot] != 0 && values[slot] != value)
+			slot = (slot + 1) & mask;
+
+		return slot;
+	}
+
+	/**
+	 * Empties a slot, moving back any value further along its probe sequence
+	 * that could no longer be found past the gap.
+	 */
+	private void remove(int slot)
+	{
+		int mask = indices.length - 1;
+		int gap = slot;
+
+		for(int s = (slot + 1) & mask; indices[s] != 0; s = (s + 1) & mask)
+		{
+			int home = home(values[s], mask);
+			// Move it if its home is not between the gap and it, cyclically.
+			if(((s - home) & mask) >= ((s - gap) & mask)) {
+				values[gap] = values[s];
+				indices[gap] = indices[s];
+				gap = s;
+			}
+		}
+		indices[gap] = 0;
+	}
+
+	/**
+	 * Gets the slot a value is first looked for in.
+	 */
+	private static int home(int value, int mask)
+	{
+		int h = value * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * Doubles the number of slots and re-inserts every value.
+	 */
+	private void grow()
+	{
+		int[] oldValues = values;
+		int[] oldIndices = indices;
+
+		values = new int[oldIndices.length * 2];
+		indices = new int[oldIndices.length * 2];
+
+		for(int slot = 0; slot < oldIndices.length; slot++)
+		{
+			if(oldIndices[slot] != 0) {
+				int s = find(oldValues[slot]);
+				values[s] = oldValues[slot];
+				indices[s] = oldIndices[slot];
+			}
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+/**
+ * Receives the values of the paths found while searching the GameStates
+ * reachable from a root.
+ * 
+ * @author Navid
+ *
+ */
+public interface ValueVisitor {
+
+	/**
+	 * Called once for every reachable GameState.
+	 * 
+	 * @param value - Value of the path to the GameState.
+	 * @param depth - Depth of the GameState, the root is at depth 0.
+	 */
+	void visit(int value, int depth);
+}
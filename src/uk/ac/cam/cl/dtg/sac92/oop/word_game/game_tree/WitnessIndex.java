@@ -0,0 +1,325 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+import java.util.Arrays;
+
+/**
+ * Keeps, for each value, the shortest path found that makes it, packed into
+ * a long by PackedPath, so that showing a hint, proving a value can be made
+ * or working out the best score for it is a single lookup.
+ * 
+ * The index holds at most maxEntries values. Once it is full it keeps the
+ * values with the shortest paths, the smaller value first among those with
+ * paths as long, and a path to a new value either takes the place of the
+ * worst value held or is turned away; either way a value is dropped. Among
+ * paths of the same length the one with the smaller packed form is kept.
+ * So the values kept and their paths do not depend on the order paths are
+ * found in, even once it is full, and searches that split the work find
+ * the same paths as a serial one.
+ * 
+ * Paths are offered under a lock, so threads can share an index. A thread
+ * offering many can collect them in a Batch and offer them together.
+ * 
+ * @author Navid
+ *
+ */
+public class WitnessIndex implements PathVisitor {
+
+	private final int maxEntries;
+	private final ValueIndex index = new ValueIndex();
+	// The value and path for each index.
+	private int[] values = new int[0];
+	private long[] paths = new long[0];
+	// Indices held as a heap with the worst value at the top, and the
+	// position of each index in it.
+	private int[] heap = new int[0];
+	private int[] positions = new int[0];
+	private long dropped = 0;
+
+	/**
+	 * Constructor - Creates an empty index.
+	 * 
+	 * @param maxEntries - Most values to hold.
+	 */
+	public WitnessIndex(int maxEntries)
+	{
+		if(maxEntries < 1) {
+			throw new IllegalArgumentException("WitnessIndex:constructor(" +
+					maxEntries + "): the index must hold at least one value");
+		}
+		this.maxEntries = maxEntries;
+	}
+
+	@Override
+	public void visit(int value, int depth, long path)
+	{
+		offer(value, path);
+	}
+
+	/**
+	 * Records a path to a value if it is the best found so far.
+	 * 
+	 * @param value - The value.
+	 * @param path - A packed path that makes it.
+	 * @return - True if the path was kept.
+	 */
+	public synchronized boolean offer(int value, long path)
+	{
+		return add(value, path);
+	}
+
+	/**
+	 * Offers every path in a batch and empties it.
+	 * 
+	 * @param batch - The paths to offer.
+	 */
+	public synchronized void offer(Batch batch)
+	{
+		for(int i = 0; i < batch.size; i++)
+			add(batch.values[i], batch.paths[i]);
+		batch.size = 0;
+	}
+
+	/**
+	 * Actual implementation of offer, the lock is held.
+	 */
+	private boolean add(int value, long path)
+	{
+		int i = index.indexOf(value);
+
+		if(i >= 0) {
+			if(!better(path, paths[i]))
+				return false;
+			paths[i] = path;
+			siftDown(positions[i]);
+			return true;
+		}
+
+		if(index.size() < maxEntries) {
+			i = index.add(value);
+			if(i >= paths.length)
+				grow();
+			values[i] = value;
+			paths[i] = path;
+			heap[i] = i;
+			positions[i] = i;
+			siftUp(i);
+			return true;
+		}
+
+		dropped++;
+		int worst = heap[0];
+		if(!worse(values[worst], paths[worst], value, path))
+			return false;
+
+		index.replace(values[worst], value);
+		values[worst] = value;
+		paths[worst] = path;
+		siftDown(0);
+		return true;
+	}
+
+	/**
+	 * Adds every path in another index to this one.
+	 * 
+	 * @param other - The index to add.
+	 */
+	public void merge(WitnessIndex other)
+	{
+		int[] values;
+		long[] paths;
+		long dropped;
+		synchronized(other) {
+			values = Arrays.copyOf(other.values, other.size());
+			paths = Arrays.copyOf(other.paths, other.size());
+			dropped = other.dropped;
+		}
+
+		synchronized(this) {
+			for(int i = 0; i < values.length; i++)
+				add(values[i], paths[i]);
+			this.dropped += dropped;
+		}
+	}
+
+	/**
+	 * Gets the shortest path found to a value.
+	 * 
+	 * @param value - The value.
+	 * @return - The packed path, or PackedPath.NONE if none is held.
+	 */
+	public synchronized long witness(int value)
+	{
+		int i = index.indexOf(value);
+		return i < 0 ? PackedPath.NONE : paths[i];
+	}
+
+	/**
+	 * Gets the number of values held.
+	 * @return - The number of values.
+	 */
+	public synchronized int size() {return index.size();}
+
+	/**
+	 * Gets the most values the index can hold.
+	 * @return - The maximum number of values.
+	 */
+	public int maxEntries() {return maxEntries;}
+
+	/**
+	 * Gets the number of values dropped because the index was full, each
+	 * time one was. Unlike the values kept, it depends on the order the
+	 * paths were found in.
+	 * @return - The number of values dropped.
+	 */
+	public synchronized long dropped() {return dropped;}
+
+	/**
+	 * Does the index hold a path for every value offered to it.
+	 * @return - True if nothing was dropped.
+	 */
+	public synchronized boolean isComplete() {return dropped == 0;}
+
+	/**
+	 * Gets the number of bytes held by the index's arrays.
+	 * @return - The number of bytes.
+	 */
+	public synchronized long bytes()
+	{
+		return index.bytes() + 4L * values.length + 8L * paths.length +
+				4L * heap.length + 4L * positions.length;
+	}
+
+	/**
+	 * Grows the arrays, doubling them so that adding stays constant time on
+	 * average, but never past maxEntries.
+	 */
+	private void grow()
+	{
+		int length = Math.min(maxEntries, Math.max(16, paths.length * 2));
+		values = Arrays.copyOf(values, length);
+		paths = Arrays.copyOf(paths, length);
+		heap = Arrays.copyOf(heap, length);
+		positions = Arrays.copyOf(positions, length);
+	}
+
+	/**
+	 * Moves the index at a position of the heap up until its parent is
+	 * worse.
+	 */
+	private void siftUp(int position)
+	{
+		int i = heap[position];
+		while(position > 0)
+		{
+			int parent = (position - 1) / 2;
+			int p = heap[parent];
+			if(!worse(values[i], paths[i], values[p], paths[p]))
+				break;
+			place(p, position);
+			position = parent;
+		}
+		place(i, position);
+	}
+
+	/**
+	 * Moves the index at a position of the heap down until its children are
+	 * better, after its path has got better.
+	 */
+	private void siftDown(int position)
+	{
+		int i = heap[position];
+		int size = index.size();
+		while(true)
+		{
+			int child = 2 * position + 1;
+			if(child >= size)
+				break;
+			int c = heap[child];
+			if(child + 1 < size) {
+				int sibling = heap[child + 1];
+				if(worse(values[sibling], paths[sibling], values[c], paths[c])) {
+					child++;
+					c = sibling;
+				}
+			}
+			if(!worse(values[c], paths[c], values[i], paths[i]))
+				break;
+			place(c, position);
+			position = child;
+		}
+		place(i, position);
+	}
+
+	private void place(int i, int position)
+	{
+		heap[position] = i;
+		positions[i] = position;
+	}
+
+	/**
+	 * Is the first value worse to keep than the second, given their
+	 * shortest paths: its path is longer, or as long and it is larger.
+	 */
+	private static boolean worse(int value, long path, int than,
+			long thanPath)
+	{
+		int length = PackedPath.length(path);
+		int thanLength = PackedPath.length(thanPath);
+		return length > thanLength || (length == thanLength && value > than);
+	}
+
+	/**
+	 * Is the first path better than the second: shorter, or as long with a
+	 * smaller packed form.
+	 */
+	private static boolean better(long path, long than)
+	{
+		int length = PackedPath.length(path);
+		int thanLength = PackedPath.length(than);
+		return length < thanLength || (length == thanLength && path < than);
+	}
+
+	/**
+	 * Collects paths for one thread to offer to a shared index together, so
+	 * it takes the index's lock once for many paths. Offers itself to the
+	 * index when it fills up, flush() offers the rest.
+	 */
+	public static class Batch implements PathVisitor {
+
+		// Paths collected before they are offered.
+		static final int SIZE = 1024;
+
+		private final WitnessIndex witnesses;
+		private final int[] values = new int[SIZE];
+		private final long[] paths = new long[SIZE];
+		private int size = 0;
+
+		/**
+		 * Constructor - Creates an empty batch for an index.
+		 * 
+		 * @param witnesses - The index to offer the paths to.
+		 */
+		public Batch(WitnessIndex witnesses)
+		{
+			this.witnesses = witnesses;
+		}
+
+		@Override
+		public void visit(int value, int depth, long path)
+		{
+			values[size] = value;
+			paths[size] = path;
+			if(++size == SIZE)
+				witnesses.offer(this);
+		}
+
+		/**
+		 * Offers the paths collected to the index.
+		 */
+		public void flush()
+		{
+			if(size > 0)
+				witnesses.offer(this);
+		}
+	}
+}
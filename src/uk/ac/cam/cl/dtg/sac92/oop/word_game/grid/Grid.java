@@ -1,6 +1,7 @@
 package uk.ac.cam.cl.dtg.sac92.oop.word_game.grid;
 
 import java.awt.Point;
+import java.util.IdentityHashMap;
 import java.util.NoSuchElementException;
 
 /**
@@ -11,6 +12,11 @@ import java.util.NoSuchElementException;
  */
 public class Grid implements Cloneable{
 	private Tile[][] gridRep;
+	// Cell of each tile on the grid, cells are numbered x + width*y. Tiles
+	// are compared by reference, as in positionOf.
+	private IdentityHashMap<Tile, Integer> cellIndex;
+	// Cells adjacent to each cell, in the same numbering.
+	private int[][] neighbourCells;
 
 	/**
 	 * Constructor will generate a grid of a specified width and height and
@@ -22,23 +28,52 @@ public class Grid implements Cloneable{
 	 */
 	public Grid(int width, int height, TileCollection tiles) {
 		if (width < 1 || height < 1) {
-			throw new IllegalArgumentException("Grid:constructor(" + width + ", " + height + ", " + tiles
+			throw new IllegalArgumentException("Grid:constructor(" + width
+					+ ", " + height + ", " + tiles
 					+ "): grid must be at least 1x1 in size");
 		} else if (width * height > tiles.size()) {
-			throw new IllegalArgumentException("Grid:constructor(" + width + ", " + height + ", " + tiles
+			throw new IllegalArgumentException("Grid:constructor(" + width
+					+ ", " + height + ", " + tiles
 					+ "): not enough tiles to cover grid");
 		} else {
 			gridRep = new Tile[width][height];
+			cellIndex = new IdentityHashMap<Tile, Integer>(width * height);
+			neighbourCells = new int[width * height][];
 			for (int y = 0; y < height; y++) {
 
 				for (int x = 0; x < width; x++) {
 
 					gridRep[x][y] = tiles.removeOne();
+					cellIndex.put(gridRep[x][y], x + width * y);
+					neighbourCells[x + width * y] = findNeighbours(x, y, width,
+							height);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Lists the cells adjacent to a position, i.e. those whose coordinates
+	 * differ by at most one, excluding the position itself.
+	 */
+	private static int[] findNeighbours(int x, int y, int width, int height) {
+		int[] found = new int[8];
+		int count = 0;
+		for (int dy = -1; dy <= 1; dy++) {
+			for (int dx = -1; dx <= 1; dx++) {
+				int nx = x + dx;
+				int ny = y + dy;
+				if ((dx != 0 || dy != 0) && nx >= 0 && ny >= 0 && nx < width
+						&& ny < height) {
+					found[count++] = nx + width * ny;
+				}
+			}
+		}
+		int[] neighbours = new int[count];
+		System.arraycopy(found, 0, neighbours, 0, count);
+		return neighbours;
+	}
+
 	/**
 	 * TileAt This method will return the tile at a given position within the
 	 * grid.
@@ -47,8 +82,10 @@ public class Grid implements Cloneable{
 	 * @return a Tile
 	 */
 	public Tile tileAt(Point position) {
-		if (position.x > this.width() || position.x < 0 || position.y > this.height() || position.y < 0) {
-			throw new IllegalArgumentException("Grid:at(" + position + "): point out of bounds");
+		if (position.x > this.width() || position.x < 0
+				|| position.y > this.height() || position.y < 0) {
+			throw new IllegalArgumentException("Grid:at(" + position
+					+ "): point out of bounds");
 		} else {
 			return gridRep[position.x][position.y];
 		}
@@ -62,7 +99,83 @@ public class Grid implements Cloneable{
 	 */
 	public void setTileAt(Point position, Tile tile)
 	{
+		Tile old = gridRep[position.x][position.y];
+		Integer cell = position.x + width() * position.y;
+		if (cell.equals(cellIndex.get(old))) {
+			cellIndex.remove(old);
+		}
 		gridRep[position.x][position.y] = tile;
+		cellIndex.put(tile, cell);
+	}
+
+	/**
+	 * TileAt This method will return the tile in a given cell.
+	 * 
+	 * @param cell
+	 * @return a Tile
+	 */
+	public Tile tileAt(int cell) {
+		if (cell < 0 || cell >= cells()) {
+			throw new IllegalArgumentException("Grid:at(" + cell
+					+ "): cell out of bounds");
+		}
+		return gridRep[cellX(cell)][cellY(cell)];
+	}
+
+	/**
+	 * CellOf This method will tell you the cell holding a given tile, cells
+	 * are numbered x + width*y.
+	 * 
+	 * @param tile
+	 * @return the cell
+	 */
+	public int cellOf(Tile tile) {
+		Integer cell = cellIndex.get(tile);
+		if (cell == null) {
+			throw new NoSuchElementException("Grid:of(" + tile
+					+ "): tile not contained in this grid");
+		}
+		return cell;
+	}
+
+	/**
+	 * Gets the cells adjacent to a cell. The array is shared so it must not
+	 * be modified.
+	 * 
+	 * @param cell
+	 * @return the adjacent cells
+	 */
+	public int[] neighbours(int cell) {
+		return neighbourCells[cell];
+	}
+
+	/**
+	 * Gets the x coordinate of a cell.
+	 * 
+	 * @param cell
+	 * @return int x
+	 */
+	public int cellX(int cell) {
+		return cell % width();
+	}
+
+	/**
+	 * Gets the y coordinate of a cell.
+	 * 
+	 * @param cell
+	 * @return int y
+	 */
+	public int cellY(int cell) {
+		return cell / width();
+	}
+
+	/**
+	 * Gets the number of cells in the grid.
+	 * 
+	 * @return int cells
+	 */
+	public int cells() {
+		return width() * height();
 	}
 
 	/**
@@ -73,14 +186,8 @@ public class Grid implements Cloneable{
 	 * @return a Point
 	 */
 	public Point positionOf(Tile tile) {
-		for (int y = 0; y < this.height(); y++) {
-			for (int x = 0; x < this.width(); x++) {
-				if (gridRep[x][y] == tile) {
-					return new Point(x, y);
-				}
-			}
-		}
-		throw new NoSuchElementException("Grid:of(" + tile + "): tile not contained in this grid");
+		int cell = cellOf(tile);
+		return new Point(cellX(cell), cellY(cell));
 	}
 
 	/**
@@ -111,15 +218,15 @@ public class Grid implements Cloneable{
 	 */
 	public static boolean isNeighbour(Tile t1, Tile t2, Grid grid) 
 	{
-		Point p1 = grid.positionOf(t1);
-		Point p2 = grid.positionOf(t2);
+		int c2 = grid.cellOf(t2);
 		
-		// Differences in coordinates.
-		int dx = p1.x - p2.x;
-		int dy = p1.y - p2.y;
-		
-		// For adjacency we require |dx| and |dy| to be less than 2
-		return (dx*dx < 2) && (dy*dy < 2) ? true : false;
+		// Adjacent tiles appear in each other's list of neighbours.
+		for (int cell : grid.neighbours(grid.cellOf(t1))) {
+			if (cell == c2) {
+				return true;
+			}
+		}
+		return false;
 	}
 	
 	/**
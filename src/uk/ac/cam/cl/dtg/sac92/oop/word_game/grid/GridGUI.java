@@ -6,6 +6,7 @@ import java.awt.GridLayout;
 import java.awt.Point;
 import java.awt.event.ActionListener;
 import java.awt.event.ActionEvent;
+import java.util.IdentityHashMap;
 import java.util.NoSuchElementException;
 
 /**
@@ -13,6 +14,12 @@ import java.util.NoSuchElementException;
  * 
  * You shouldn't need to modify this class to create your game.
  * 
+ * The TileGUI for a tile or a cell is looked up directly rather than by
+ * searching the components. Colour changes made between beginUpdate and
+ * endUpdate are applied together at the end, and only to the tiles whose
+ * colours actually changed, so only those tiles are repainted. When the
+ * tiles on the grid are moved, rebind shows them on the same components.
+ * 
  * @author Stephen Cummins
  * @version 1.0 Released 11/10/2005
  */
@@ -20,6 +27,18 @@ public class GridGUI extends JPanel {
 	private static final long serialVersionUID = 1L;
 	private Grid model;
 	private ActionListener observer;
+	// The TileGUI for each cell, cells are numbered x + width*y, and the
+	// cell of each tile shown, compared by reference.
+	private TileGUI[] cellGUIs;
+	private IdentityHashMap<Tile, Integer> tileCells;
+	// Colours waiting to be applied by endUpdate, null if not set, and the
+	// cells they have been set for.
+	private int updateDepth = 0;
+	private Color[] pendingForeground;
+	private Color[] pendingBackground;
+	private boolean[] dirty;
+	private int[] dirtyCells;
+	private int dirtyCount = 0;
 
 	/**
 	 * Constructor will create a GUI based on the provided Grid object.
@@ -32,16 +51,81 @@ public class GridGUI extends JPanel {
 		model = grid;
 		ActionListener tileSelectionListener = new TileSelectionListener(this);
 
+		int cells = grid.width() * grid.height();
+		cellGUIs = new TileGUI[cells];
+		tileCells = new IdentityHashMap<Tile, Integer>(cells);
+		pendingForeground = new Color[cells];
+		pendingBackground = new Color[cells];
+		dirty = new boolean[cells];
+		dirtyCells = new int[cells];
+
 		for (int y = 0; y < grid.height(); y++) {
 			for (int x = 0; x < grid.width(); x++) {
 
 				TileGUI component = new TileGUI(grid.tileAt(new Point(x, y)));
 				component.addActionListener(tileSelectionListener);
 				this.add(component);
+				cellGUIs[x + grid.width() * y] = component;
+				tileCells.put(component.getTile(), x + grid.width() * y);
 			}
 		}
 	}
 
+	/**
+	 * Shows the tiles now on the grid, after they have been moved around it,
+	 * e.g. by a shuffle. The components stay and keep their colours, only
+	 * tiles whose letters changed are repainted.
+	 */
+	public void rebind() {
+		tileCells.clear();
+		for (int cell = 0; cell < cellGUIs.length; cell++) {
+			Tile tile = model.tileAt(cell);
+			cellGUIs[cell].setTile(tile);
+			tileCells.put(tile, cell);
+		}
+	}
+
+	/**
+	 * Starts a batch of colour changes. Until the matching endUpdate the
+	 * colours set are only recorded, a tile set more than once takes the
+	 * last colour set. Batches may be nested.
+	 */
+	public void beginUpdate() {
+		updateDepth++;
+	}
+
+	/**
+	 * Ends a batch of colour changes, applying them when the outermost
+	 * batch ends. Tiles whose colours are already the ones set are left
+	 * alone, so only the tiles that changed are repainted.
+	 */
+	public void endUpdate() {
+		if (updateDepth == 0) {
+			throw new IllegalStateException("GridGUI:endUpdate(): no update to end");
+		}
+		if (--updateDepth > 0) {
+			return;
+		}
+
+		for (int i = 0; i < dirtyCount; i++) {
+			int cell = dirtyCells[i];
+			TileGUI tileGUI = cellGUIs[cell];
+			Color foreground = pendingForeground[cell];
+			Color background = pendingBackground[cell];
+			pendingForeground[cell] = null;
+			pendingBackground[cell] = null;
+			dirty[cell] = false;
+
+			if (foreground != null && !foreground.equals(tileGUI.getForeground())) {
+				tileGUI.setForeground(foreground);
+			}
+			if (background != null && !background.equals(tileGUI.getBackground())) {
+				tileGUI.setBackground(background);
+			}
+		}
+		dirtyCount = 0;
+	}
+
 	/**
 	 * Add an action Listener
 	 * 
@@ -69,8 +153,7 @@ public class GridGUI extends JPanel {
 	 *            - colour to change it to.
 	 */
 	public void setTileForeground(Tile tile, Color colour) {
-		TileGUI tileGUI = locateTileGUI(tile);
-		tileGUI.setForeground(colour);
+		foreground(locateCell(tile), colour);
 	}
 
 	/**
@@ -82,8 +165,7 @@ public class GridGUI extends JPanel {
 	 *            - colour to change it to.
 	 */
 	public void setTileBackground(Tile tile, Color colour) {
-		TileGUI tileGUI = locateTileGUI(tile);
-		tileGUI.setBackground(colour);
+		background(locateCell(tile), colour);
 	}
 
 	/**
@@ -95,8 +177,7 @@ public class GridGUI extends JPanel {
 	 *            - colour to change it to.
 	 */
 	public void setTileForeground(Point position, Color colour) {
-		TileGUI tileGUI = locateTileGUI(position);
-		tileGUI.setForeground(colour);
+		foreground(locateCell(position), colour);
 	}
 
 	/**
@@ -108,8 +189,31 @@ public class GridGUI extends JPanel {
 	 *            - colour to change it to.
 	 */
 	public void setTileBackground(Point position, Color colour) {
-		TileGUI tileGUI = locateTileGUI(position);
-		tileGUI.setBackground(colour);
+		background(locateCell(position), colour);
+	}
+
+	/**
+	 * Change foreground colour of a tile.
+	 * 
+	 * @param cell
+	 *            - of the tile, as numbered by Grid.cellOf.
+	 * @param colour
+	 *            - colour to change it to.
+	 */
+	public void setTileForeground(int cell, Color colour) {
+		foreground(locateCell(cell), colour);
+	}
+
+	/**
+	 * Change the Tile background colour.
+	 * 
+	 * @param cell
+	 *            - of the tile, as numbered by Grid.cellOf.
+	 * @param colour
+	 *            - colour to change it to.
+	 */
+	public void setTileBackground(int cell, Color colour) {
+		background(locateCell(cell), colour);
 	}
 
 	/**
@@ -118,10 +222,11 @@ public class GridGUI extends JPanel {
 	 * @param color
 	 */
 	public void setTileForeground(Color color) {
-		for (int index = 0; index < this.getComponentCount(); index++) {
-			TileGUI tileGUI = (TileGUI) this.getComponent(index);
-			tileGUI.setForeground(color);
+		beginUpdate();
+		for (int cell = 0; cell < cellGUIs.length; cell++) {
+			foreground(cell, color);
 		}
+		endUpdate();
 	}
 
 	/**
@@ -130,32 +235,62 @@ public class GridGUI extends JPanel {
 	 * @param color
 	 */
 	public void setTileBackground(Color color) {
-		for (int index = 0; index < this.getComponentCount(); index++) {
-			TileGUI tileGUI = (TileGUI) this.getComponent(index);
-			tileGUI.setBackground(color);
+		beginUpdate();
+		for (int cell = 0; cell < cellGUIs.length; cell++) {
+			background(cell, color);
 		}
+		endUpdate();
 	}
 
-	private TileGUI locateTileGUI(Tile tile) {
-		for (int index = 0; index < this.getComponentCount(); index++) {
-			TileGUI tileGUI = (TileGUI) this.getComponent(index);
-			if (tileGUI.getTile() == tile) {
-				return tileGUI;
-			}
+	private void foreground(int cell, Color colour) {
+		if (updateDepth == 0) {
+			cellGUIs[cell].setForeground(colour);
+			return;
+		}
+		markDirty(cell);
+		pendingForeground[cell] = colour;
+	}
+
+	private void background(int cell, Color colour) {
+		if (updateDepth == 0) {
+			cellGUIs[cell].setBackground(colour);
+			return;
+		}
+		markDirty(cell);
+		pendingBackground[cell] = colour;
+	}
+
+	private void markDirty(int cell) {
+		if (!dirty[cell]) {
+			dirty[cell] = true;
+			dirtyCells[dirtyCount++] = cell;
 		}
-		throw new NoSuchElementException("GridGUI:locateTileGUI(" + tile
-				+ "): tile not represented by this GUI");
 	}
 
-	private TileGUI locateTileGUI(Point position) {
-		int index = position.y * ((GridLayout) this.getLayout()).getRows() + position.x;
+	private int locateCell(Tile tile) {
+		Integer cell = tileCells.get(tile);
+		if (cell == null) {
+			throw new NoSuchElementException("GridGUI:locateCell(" + tile
+					+ "): tile not represented by this GUI");
+		}
+		return cell;
+	}
 
-		try {
-			return (TileGUI) this.getComponent(index);
-		} catch (ArrayIndexOutOfBoundsException arrayIndexExcep) {
-			throw new IllegalArgumentException("GridGUI:locateTileGUI(" + position
+	private int locateCell(Point position) {
+		if (position.x < 0 || position.x >= model.width() || position.y < 0
+				|| position.y >= model.height()) {
+			throw new IllegalArgumentException("GridGUI:locateCell(" + position
 					+ "): position out of bounds");
 		}
+		return position.x + model.width() * position.y;
+	}
+
+	private int locateCell(int cell) {
+		if (cell < 0 || cell >= cellGUIs.length) {
+			throw new IllegalArgumentException("GridGUI:locateCell(" + cell
+					+ "): cell out of bounds");
+		}
+		return cell;
 	}
 
 	private class TileSelectionListener implements ActionListener {
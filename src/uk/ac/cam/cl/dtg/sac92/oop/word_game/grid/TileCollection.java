@@ -22,8 +22,22 @@ public class TileCollection {
 	 * shuffle them.
 	 */
 	public TileCollection() {
+		this(new Random());
+	}
+
+	/**
+	 * Seeded Constructor This will create a random collection of tiles and
+	 * shuffle them, the same seed always gives the same collection.
+	 * 
+	 * @param seed - Seed for the shuffle.
+	 */
+	public TileCollection(long seed) {
+		this(new Random(seed));
+	}
+
+	private TileCollection(Random random) {
 		Tile[] tileArray = makeTileArray();
-		shuffleTiles(tileArray);
+		shuffleTiles(tileArray, random);
 		this.collection = new ArrayList<Tile>(Arrays.asList(tileArray));
 	}
 	
@@ -92,9 +106,7 @@ public class TileCollection {
 		return tiles;
 	}
 
-	private void shuffleTiles(Tile[] tileArray) {
-		Random random = new Random();
-
+	private void shuffleTiles(Tile[] tileArray, Random random) {
 		int numberOfRuns = tileArray.length;
 
 		while (numberOfRuns > 0) {
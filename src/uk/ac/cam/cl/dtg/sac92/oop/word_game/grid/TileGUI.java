@@ -2,80 +2,176 @@ package uk.ac.cam.cl.dtg.sac92.oop.word_game.grid;
 
 import javax.swing.JButton;
 import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * TileGUI
  *
  * This class generates a GUI element that represents a tile in the game grid.
- * 
+ *
+ * The tile is still a button, so it is clicked and reports clicks as
+ * before, but it paints itself: the background is filled with the
+ * background colour, darker while it is pressed and brighter while the
+ * mouse is over it, and the letter is drawn from an image of it in the
+ * foreground colour. The images are made once for each letter, colour and
+ * display scale and shared by every tile, so changing a tile's colours
+ * only repaints it, rather than setting HTML text that Swing has to parse
+ * and lay out again.
+ *
  * @author Stephen Cummins
  * @version 1.0 Released 11/10/2005
  */
 public class TileGUI extends JButton {
 
 	private static final long serialVersionUID = 1L;
+	// The size HTML text of size "+5" was drawn in.
+	private static final float GLYPH_POINTS = 36f;
+	// Images of the letters, keyed by glyphKey.
+	private static final ConcurrentHashMap<Long, BufferedImage> glyphs =
+			new ConcurrentHashMap<Long, BufferedImage>();
+
 	private Tile model;
+	private Font glyphFont;
 
 	/**
 	 * The constructor accepts a tile and generates the button for the grid.
-	 * 
+	 *
 	 * @param tile
 	 */
 	public TileGUI(Tile tile) {
 		super();
 		model = tile;
-		setText(makeHTML(super.getForeground(), tile));
-		this.setContentAreaFilled(true);
+		glyphFont = getFont().deriveFont(GLYPH_POINTS);
+		// The button's look and feel paints the border and focus, this
+		// class paints the rest.
+		this.setContentAreaFilled(false);
+		this.setOpaque(true);
+		this.setRolloverEnabled(true);
 	}
 
-	private String setTwoDigits(String string) {
-		if (string.length() == 1) {
-			return "0" + string;
-		} else if (string.length() == 2) {
-			return string;
-		} else {
-			throw new IllegalArgumentException("TileGUI:setTwoDigits(" + string + "): more than two digits");
-		}
+	/**
+	 * This method will get you the tile object which is being represented by
+	 * this GUI element
+	 *
+	 * @return a Tile
+	 */
+	public Tile getTile() {
+		return model;
 	}
 
 	/**
-	 * This will allow you to change the foreground colour of the tile.
+	 * Shows another tile, e.g. after the tiles on the grid have been moved.
+	 * The tile is only repainted if its letter changed.
 	 * 
-	 * @param A
-	 *            colour (Color)
+	 * @param tile
+	 */
+	void setTile(Tile tile) {
+		Tile old = model;
+		model = tile;
+		if (old.letter() != tile.letter()) {
+			repaint();
+		}
+	}
+
+	/**
+	 * The preferred size fits the letter as the HTML text did.
 	 */
 	@Override
-	public void setForeground(Color colour) {
-		super.setForeground(colour);
-		if (model != null) {
-			this.setText(makeHTML(colour, model));
+	public Dimension getPreferredSize() {
+		if (isPreferredSizeSet() || model == null) {
+			return super.getPreferredSize();
 		}
+		FontMetrics metrics = getFontMetrics(glyphFont);
+		Insets insets = getInsets();
+		return new Dimension(metrics.charWidth(model.letter()) + insets.left
+				+ insets.right, metrics.getHeight() + insets.top
+				+ insets.bottom);
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		// The content area is not filled, so show presses and rollovers here.
+		Color background = getBackground();
+		if (getModel().isArmed() && getModel().isPressed()) {
+			background = background.darker();
+		} else if (getModel().isRollover()) {
+			background = background.brighter();
+		}
+		g.setColor(background);
+		g.fillRect(0, 0, getWidth(), getHeight());
+
+		// Draw the image at the display's scale so that it is not blurred
+		// on scaled displays, in quarter steps to keep the cache small.
+		double transform = g instanceof Graphics2D
+				? ((Graphics2D) g).getTransform().getScaleX() : 1.0;
+		int quarters = Math.max(4, (int) Math.round(transform * 4));
+		BufferedImage glyph = glyph(model.letter(), getForeground(), glyphFont,
+				quarters);
+
+		int width = glyph.getWidth() * 4 / quarters;
+		int height = glyph.getHeight() * 4 / quarters;
+		g.drawImage(glyph, (getWidth() - width) / 2, (getHeight() - height) / 2,
+				width, height, null);
 	}
 
 	/**
-	 * This method will get you the tile object which is being represented by
-	 * this GUI element
-	 * 
-	 * @return a Tile
+	 * Gets the image of a letter, making it the first time it is asked for.
+	 * Every tile has the same font, so it is not part of the key.
+	 *
+	 * @param letter
+	 *            - the letter.
+	 * @param colour
+	 *            - colour to draw it in.
+	 * @param font
+	 *            - font to draw it in.
+	 * @param quarters
+	 *            - display scale, in quarters.
+	 * @return the image
 	 */
-	public Tile getTile() {
-		return model;
+	private static BufferedImage glyph(char letter, Color colour, Font font,
+			int quarters) {
+		Long key = glyphKey(letter, colour, quarters);
+		BufferedImage glyph = glyphs.get(key);
+		if (glyph == null) {
+			// Racing threads would each make the same image.
+			glyph = makeGlyph(letter, colour, font.deriveFont(font.getSize2D()
+					* quarters / 4));
+			glyphs.put(key, glyph);
+		}
+		return glyph;
+	}
+
+	private static Long glyphKey(char letter, Color colour, int quarters) {
+		return ((long) quarters << 48) | ((long) letter << 32)
+				| (colour.getRGB() & 0xffffffffL);
 	}
-	
-	private String makeHTML(Color colour, Tile tile) {
-		String redString = Integer.toHexString(colour.getRed());
-		String greenString = Integer.toHexString(colour.getGreen());
-		String blueString = Integer.toHexString(colour.getBlue());
-		redString = setTwoDigits(redString);
-		greenString = setTwoDigits(greenString);
-		blueString = setTwoDigits(blueString);
 
-		StringBuffer result = new StringBuffer();
-		result.append("<html><font color=\"#");
-		result.append(redString);
-		result.append(greenString);
-		result.append(blueString);
-		result.append("\" size=\"+5\">" + tile.letter() );
-		return result.toString();
+	private static BufferedImage makeGlyph(char letter, Color colour,
+			Font font) {
+		BufferedImage scratch = new BufferedImage(1, 1,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D sg = scratch.createGraphics();
+		FontMetrics metrics = sg.getFontMetrics(font);
+		sg.dispose();
+
+		BufferedImage glyph = new BufferedImage(
+				Math.max(1, metrics.charWidth(letter)),
+				Math.max(1, metrics.getHeight()), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = glyph.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+				RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setFont(font);
+		g.setColor(colour);
+		g.drawString(String.valueOf(letter), 0, metrics.getAscent());
+		g.dispose();
+		return glyph;
 	}
 }
@@ -0,0 +1,345 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.server;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.Difficulty;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.DifficultyGenerator;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.EngineMetrics;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.Exploration;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.GameState;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.LatencyRecorder;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.SearchBudget;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.SearchMonitor;
+
+/**
+ * Hosts many games in one JVM, one for each connection to a local TCP
+ * port, so that players do not each need a process and a window.
+ *
+ * Usage: GameServer [port] [analysis threads] [max sessions] [budget ms]
+ *
+ * Each session has its own GameEngine and a thread that blocks reading its
+ * connection, the threads are small so thousands of sessions can be open.
+ * Required values are generated on a shared pool with a thread for each
+ * core, so however many sessions there are the searches never use more
+ * than the cores. Each search is given a time budget and is walked on a
+ * single thread, as the pool already keeps every core busy. The server
+ * passes its exploration to each search rather than setting the default,
+ * so a server in a larger application leaves the application's searches
+ * alone. A search that is no longer wanted, as its session has gone or its
+ * board or level has changed, is cancelled. Only ANALYSIS_QUEUE searches
+ * wait for a thread, beyond that the search fails. A search that fails is
+ * tried again when the player next asks for the STATE, and until then the
+ * player sees "?".
+ *
+ * The protocol is a line of text for each request and for each reply.
+ * Cells are numbered x + width*y and lists of cells are separated by
+ * commas. On connecting the server sends "HELLO width height". Requests are
+ *
+ * CLICK cell, SUBMIT, SHUFFLE, CLEAR, UNDO, REDO - play the game, the reply is
+ * "OK +added -removed value score required expression", where the required
+ * value is "?" while it is being generated, or "NO reason" if the action
+ * was not allowed.
+ * STATE - the reply is "STATE letters path value score required level
+ * expression", the letters being the tiles in order of their cells and an
+ * empty path "-". A required value that could not be generated is asked
+ * for again, so the player can send STATE until it is no longer "?".
+ * LEVEL n - changes the difficulty, from 1 to 6, the reply is as for STATE.
+ * QUIT - the reply is "BYE" and the connection is closed.
+ *
+ * A request that cannot be understood gets "ERR reason".
+ *
+ * @author Navid
+ *
+ */
+public class GameServer {
+
+	public static final int DEFAULT_PORT = 4321;
+	static final int WIDTH = 8;
+	static final int HEIGHT = 8;
+
+	// Sessions mostly wait on their socket, so they need little stack.
+	private static final long SESSION_STACK_SIZE = 256 * 1024;
+	// Connections waiting to be accepted, enough for many at once.
+	private static final int BACKLOG = 4096;
+	// Time between reports of the sessions and latencies.
+	private static final long REPORT_MILLIS = 10000;
+	// Searches waiting for an analysis thread, more are turned away.
+	static final int ANALYSIS_QUEUE = 4096;
+	// The pool already uses every core, so each search stays on one.
+	private static final Exploration EXPLORATION = Exploration.SERIAL;
+
+	private final ServerSocket serverSocket;
+	private final ExecutorService sessions;
+	private final ThreadPoolExecutor analysis;
+	private final Semaphore slots;
+	private final SearchBudget budget;
+	private final AtomicInteger active = new AtomicInteger();
+	private final LatencyRecorder latency = new LatencyRecorder();
+
+	/**
+	 * Constructor - Listens on a port of the loopback address.
+	 *
+	 * @param port - The port, 0 for any free port.
+	 * @param analysisThreads - Threads generating required values.
+	 * @param maxSessions - Most sessions open at once.
+	 * @param budget - Limits the search for each required value.
+	 * @throws IOException - If the port cannot be listened on.
+	 */
+	public GameServer(int port, int analysisThreads, int maxSessions,
+			SearchBudget budget) throws IOException
+	{
+		this.serverSocket = new ServerSocket(port, BACKLOG,
+				InetAddress.getLoopbackAddress());
+		this.sessions = Executors.newCachedThreadPool(
+				threads("session", SESSION_STACK_SIZE));
+		this.analysis = new ThreadPoolExecutor(analysisThreads,
+				analysisThreads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(ANALYSIS_QUEUE),
+				threads("analysis", 0));
+		this.slots = new Semaphore(maxSessions);
+		this.budget = budget;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int threads = args.length > 1 ? Integer.parseInt(args[1])
+				: Runtime.getRuntime().availableProcessors();
+		int maxSessions = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+		long millis = args.length > 3 ? Long.parseLong(args[3]) : 2000;
+
+		EngineMetrics.register();
+
+		final GameServer server = new GameServer(port, threads, maxSessions,
+				SearchBudget.millis(millis));
+		System.out.println("Listening on " + server.port() + " with " +
+				threads + " analysis threads, at most " + maxSessions +
+				" sessions");
+		server.startReports();
+		server.serve();
+	}
+
+	/**
+	 * Accepts connections and starts a session for each, until the server
+	 * is closed.
+	 *
+	 * @throws IOException - If accepting fails other than by closing.
+	 */
+	public void serve() throws IOException
+	{
+		while(true)
+		{
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch(SocketException e) {
+				if(serverSocket.isClosed())
+					return;
+				throw e;
+			}
+
+			if(!slots.tryAcquire()) {
+				refuse(socket);
+				continue;
+			}
+
+			active.incrementAndGet();
+			sessions.execute(new Runnable() {
+				@Override
+				public void run()
+				{
+					try {
+						new Session(GameServer.this, socket).run();
+					} finally {
+						active.decrementAndGet();
+						slots.release();
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Stops accepting connections and closes the pools. Sessions already
+	 * open carry on until their connections close.
+	 *
+	 * @throws IOException - If the socket cannot be closed.
+	 */
+	public void close() throws IOException
+	{
+		serverSocket.close();
+		sessions.shutdown();
+		analysis.shutdownNow();
+	}
+
+	/**
+	 * Gets the port listened on.
+	 * @return - The port.
+	 */
+	public int port() {return serverSocket.getLocalPort();}
+
+	/**
+	 * Gets the number of sessions open.
+	 * @return - The number of sessions.
+	 */
+	public int activeSessions() {return active.get();}
+
+	/**
+	 * Gets the time taken to handle requests, from reading a request to
+	 * sending its reply.
+	 * @return - The latencies.
+	 */
+	public LatencyRecorder latency() {return latency;}
+
+	/**
+	 * Generates a required value on the shared pool. Cancelling the future
+	 * stops the search. If too many searches are waiting already the
+	 * future fails with a RejectedExecutionException.
+	 *
+	 * @param dif - The difficulty.
+	 * @param gs - The board with nothing on the path.
+	 * @return - The required value, when it has been generated.
+	 */
+	Future<Integer> requiredValue(Difficulty dif, GameState gs)
+	{
+		RequiredValueTask task = new RequiredValueTask(dif, gs,
+				new SearchMonitor(null, budget));
+		try {
+			analysis.execute(task);
+		} catch(RejectedExecutionException e) {
+			task.reject(e);
+		}
+		return task;
+	}
+
+	/**
+	 * Prints the sessions open and the request latencies every
+	 * REPORT_MILLIS on a daemon thread.
+	 */
+	private void startReports()
+	{
+		Thread reporter = new Thread(new Runnable() {
+			@Override
+			public void run()
+			{
+				try {
+					while(!serverSocket.isClosed())
+					{
+						Thread.sleep(REPORT_MILLIS);
+						System.out.println(String.format("%d sessions, %d " +
+								"requests, p50 %.2f ms, p99 %.2f ms, max %.2f" +
+								" ms", active.get(), latency.count(),
+								latency.percentileMillis(0.5),
+								latency.percentileMillis(0.99),
+								latency.maxMillis()));
+					}
+				} catch(InterruptedException e) {
+					// Stop reporting.
+				}
+			}
+		}, "reporter");
+		reporter.setDaemon(true);
+		reporter.start();
+	}
+
+	/**
+	 * Generates a required value on the shared pool. Cancelling it also
+	 * cancels the search, and takes it off the queue if it has not started.
+	 */
+	private class RequiredValueTask extends FutureTask<Integer> {
+
+		private final SearchMonitor monitor;
+
+		RequiredValueTask(final Difficulty dif, final GameState gs,
+				final SearchMonitor monitor)
+		{
+			super(new Callable<Integer>() {
+				@Override
+				public Integer call()
+				{
+					return DifficultyGenerator.requiredNumberFor(dif, gs,
+							EXPLORATION, monitor);
+				}
+			});
+			this.monitor = monitor;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning)
+		{
+			// The search checks the monitor rather than being interrupted.
+			monitor.cancel();
+			analysis.remove(this);
+			return super.cancel(mayInterruptIfRunning);
+		}
+
+		/**
+		 * Fails the task as the pool has turned it away.
+		 * @param e - Why it was turned away.
+		 */
+		void reject(RejectedExecutionException e)
+		{
+			setException(e);
+		}
+	}
+
+	/**
+	 * Tells a connection the server is full and closes it.
+	 */
+	private static void refuse(Socket socket)
+	{
+		try {
+			Writer out = new OutputStreamWriter(socket.getOutputStream(),
+					StandardCharsets.UTF_8);
+			out.write("ERR server full\n");
+			out.flush();
+		} catch(IOException e) {
+			// It is being closed anyway.
+		} finally {
+			try {
+				socket.close();
+			} catch(IOException e) {
+				// Nothing more to do.
+			}
+		}
+	}
+
+	/**
+	 * Creates threads with a name and a stack size.
+	 */
+	private static ThreadFactory threads(final String name,
+			final long stackSize)
+	{
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(null, r, name + "-" +
+						count.incrementAndGet(), stackSize);
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+}
@@ -0,0 +1,239 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.LatencyRecorder;
+
+/**
+ * Plays many games on a GameServer at once and reports the latency of the
+ * requests, to check that the server keeps up with a given number of
+ * players.
+ *
+ * Usage: LoadGenerator [port] [sessions] [seconds] [think ms]
+ *
+ * Each simulated player has its own connection and thread. It waits a
+ * random time, averaging the think time, between requests and mostly
+ * clicks next to the last tile it added, as a player building a path
+ * would, with the occasional clear, submit, shuffle, state or change of
+ * level. Shuffles and changes of level start a new search for the
+ * required value, replacing any search still running. The time
+ * from sending each request to reading its reply is recorded for each kind
+ * of request.
+ *
+ * @author Navid
+ *
+ */
+public class LoadGenerator {
+
+	// Kinds of request, with how many in a hundred are of each kind.
+	private static final String[] REQUESTS =
+			{"CLICK", "CLEAR", "SUBMIT", "SHUFFLE", "STATE", "LEVEL"};
+	private static final int[] PERCENT = {79, 8, 6, 1, 5, 1};
+	// Number of difficulty levels a LEVEL request picks from.
+	private static final int LEVELS = 6;
+	// Players connecting per millisecond at the start, so as not to
+	// overflow the server's backlog.
+	private static final int CONNECTS_PER_MILLI = 4;
+	private static final long PLAYER_STACK_SIZE = 256 * 1024;
+
+	private final int port;
+	private final long thinkMillis;
+	private final LatencyRecorder all = new LatencyRecorder();
+	private final LatencyRecorder[] latencies =
+			new LatencyRecorder[REQUESTS.length];
+	private final AtomicInteger connected = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param port - Port of the server on this host.
+	 * @param thinkMillis - Average time between a player's requests.
+	 */
+	public LoadGenerator(int port, long thinkMillis)
+	{
+		this.port = port;
+		this.thinkMillis = thinkMillis;
+		for(int i = 0; i < latencies.length; i++)
+			latencies[i] = new LatencyRecorder();
+	}
+
+	public static void main(String[] args) throws InterruptedException
+	{
+		int port = args.length > 0 ? Integer.parseInt(args[0])
+				: GameServer.DEFAULT_PORT;
+		int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+		long think = args.length > 3 ? Long.parseLong(args[3]) : 100;
+
+		LoadGenerator load = new LoadGenerator(port, think);
+		load.run(sessions, seconds * 1000L);
+		load.report(seconds);
+	}
+
+	/**
+	 * Plays games until the time is up.
+	 *
+	 * @param sessions - Number of players.
+	 * @param millis - How long to play for.
+	 * @throws InterruptedException - If interrupted while waiting.
+	 */
+	public void run(int sessions, long millis) throws InterruptedException
+	{
+		final long end = System.currentTimeMillis() + millis;
+		final CountDownLatch done = new CountDownLatch(sessions);
+
+		for(int i = 0; i < sessions; i++)
+		{
+			final long seed = i;
+			Thread player = new Thread(null, new Runnable() {
+				@Override
+				public void run()
+				{
+					try {
+						play(new Random(seed), end);
+					} finally {
+						done.countDown();
+					}
+				}
+			}, "player-" + i, PLAYER_STACK_SIZE);
+			player.setDaemon(true);
+			player.start();
+
+			if(i % CONNECTS_PER_MILLI == CONNECTS_PER_MILLI - 1)
+				Thread.sleep(1);
+		}
+
+		done.await();
+	}
+
+	/**
+	 * Prints the number of requests and their latencies.
+	 *
+	 * @param seconds - How long the games were played for.
+	 */
+	public void report(int seconds)
+	{
+		System.out.println(connected.get() + " sessions connected, " +
+				failed.get() + " failed");
+		System.out.println("request  count      per s   p50 ms   p90 ms   " +
+				"p99 ms   max ms");
+		for(int i = 0; i < REQUESTS.length; i++)
+			print(REQUESTS[i], latencies[i], seconds);
+		print("all", all, seconds);
+	}
+
+	private static void print(String name, LatencyRecorder l, int seconds)
+	{
+		System.out.println(String.format("%-8s %-10d %-7.0f %8.2f %8.2f " +
+				"%8.2f %8.2f", name, l.count(), (double)l.count() / seconds,
+				l.percentileMillis(0.5), l.percentileMillis(0.9),
+				l.percentileMillis(0.99), l.maxMillis()));
+	}
+
+	/**
+	 * Plays one game until the time is up.
+	 *
+	 * @param random - Chooses the requests.
+	 * @param end - When to stop, as System.currentTimeMillis().
+	 */
+	private void play(Random random, long end)
+	{
+		try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+			BufferedReader in = new BufferedReader(new InputStreamReader(
+					socket.getInputStream(), StandardCharsets.UTF_8));
+			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+					socket.getOutputStream(), StandardCharsets.UTF_8)))
+		{
+			socket.setTcpNoDelay(true);
+			String hello = in.readLine();
+			if(hello == null || !hello.startsWith("HELLO")) {
+				failed.incrementAndGet();
+				return;
+			}
+			String[] size = hello.split(" ");
+			int width = Integer.parseInt(size[1]);
+			int height = Integer.parseInt(size[2]);
+			connected.incrementAndGet();
+
+			int last = -1;
+			while(System.currentTimeMillis() < end)
+			{
+				Thread.sleep((long)(random.nextDouble() * 2 * thinkMillis));
+
+				int kind = pick(random);
+				String request = REQUESTS[kind];
+				if(kind == 0) {
+					last = nextCell(random, last, width, height);
+					request = request + " " + last;
+				} else if(REQUESTS[kind].equals("LEVEL")) {
+					request = request + " " + (1 + random.nextInt(LEVELS));
+				}
+
+				long start = System.nanoTime();
+				out.write(request);
+				out.write('\n');
+				out.flush();
+				String reply = in.readLine();
+				long nanos = System.nanoTime() - start;
+
+				if(reply == null)
+					throw new IOException("Server closed the connection");
+				latencies[kind].record(nanos);
+				all.record(nanos);
+
+				// Start a new path after anything but an accepted click.
+				if(kind != 0 || !reply.startsWith("OK"))
+					last = -1;
+			}
+
+			out.write("QUIT\n");
+			out.flush();
+			in.readLine();
+		} catch(IOException e) {
+			failed.incrementAndGet();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Picks a kind of request.
+	 */
+	private static int pick(Random random)
+	{
+		int r = random.nextInt(100);
+		for(int kind = 0; kind < PERCENT.length; kind++)
+		{
+			r -= PERCENT[kind];
+			if(r < 0)
+				return kind;
+		}
+		return 0;
+	}
+
+	/**
+	 * Picks a cell next to the last one, or anywhere if there is none.
+	 */
+	private static int nextCell(Random random, int last, int width, int height)
+	{
+		if(last < 0)
+			return random.nextInt(width * height);
+
+		int x = Math.max(0, Math.min(width - 1,
+				last % width + random.nextInt(3) - 1));
+		int y = Math.max(0, Math.min(height - 1,
+				last / width + random.nextInt(3) - 1));
+		return x + width * y;
+	}
+}
@@ -0,0 +1,253 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.GameDelta;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.GameEngine;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree.Difficulty;
+
+/**
+ * One player's game on a GameServer, played over a connection with the
+ * protocol described there. The session's thread is the only one to use
+ * its GameEngine, required values are generated on the server's pool and
+ * picked up by the session when they are ready.
+ *
+ * @author Navid
+ *
+ */
+class Session implements Runnable {
+
+	private final GameServer server;
+	private final Socket socket;
+	private final GameEngine engine;
+
+	// The required value being generated, if any.
+	private Future<Integer> pending;
+	// Whether the last required value asked for could not be generated.
+	private boolean failed;
+
+	/**
+	 * Constructor - Starts a game for a connection.
+	 *
+	 * @param server - The server the session is on.
+	 * @param socket - The connection.
+	 */
+	Session(GameServer server, Socket socket)
+	{
+		this.server = server;
+		this.socket = socket;
+		this.engine = new GameEngine(GameServer.WIDTH, GameServer.HEIGHT,
+				Difficulty.LEVEL_1);
+	}
+
+	@Override
+	public void run()
+	{
+		try(Socket s = socket;
+			BufferedReader in = new BufferedReader(new InputStreamReader(
+					s.getInputStream(), StandardCharsets.UTF_8));
+			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+					s.getOutputStream(), StandardCharsets.UTF_8)))
+		{
+			s.setTcpNoDelay(true);
+			requestRequiredValue();
+			out.write("HELLO " + GameServer.WIDTH + " " + GameServer.HEIGHT +
+					"\n");
+			out.flush();
+
+			String line;
+			while((line = in.readLine()) != null)
+			{
+				long start = System.nanoTime();
+				String reply = handle(line.trim());
+
+				out.write(reply);
+				out.write('\n');
+				out.flush();
+				server.latency().record(System.nanoTime() - start);
+
+				if(reply.equals("BYE"))
+					break;
+			}
+		} catch(IOException e) {
+			// The player has gone, the game goes with them.
+		} finally {
+			if(pending != null)
+				pending.cancel(false);
+		}
+	}
+
+	/**
+	 * Carries out a request.
+	 *
+	 * @param request - The request line.
+	 * @return - The reply line.
+	 */
+	String handle(String request)
+	{
+		collectRequiredValue();
+
+		String[] words = request.split(" +");
+		switch(words[0])
+		{
+		case "CLICK":
+			if(words.length != 2)
+				return "ERR usage: CLICK cell";
+			int cell;
+			try {
+				cell = Integer.parseInt(words[1]);
+			} catch(NumberFormatException e) {
+				return "ERR not a cell: " + words[1];
+			}
+			if(cell < 0 || cell >= engine.grid().cells())
+				return "ERR no cell " + cell;
+			return reply(engine.click(cell));
+		case "SUBMIT":
+			return reply(engine.submit());
+		case "SHUFFLE":
+			return reply(engine.shuffle());
+		case "CLEAR":
+			return reply(engine.clear());
+		case "UNDO":
+			return reply(engine.undo());
+		case "REDO":
+			return reply(engine.redo());
+		case "STATE":
+			// Try once more for a required value that could not be made,
+			// e.g. when the pool was too busy to take the search.
+			if(failed)
+				requestRequiredValue();
+			return state();
+		case "LEVEL":
+			int level;
+			try {
+				level = Integer.parseInt(words.length == 2 ? words[1] : "");
+			} catch(NumberFormatException e) {
+				return "ERR usage: LEVEL n";
+			}
+			if(level < 1 || level > Difficulty.values().length)
+				return "ERR no level " + level;
+			engine.setDifficulty(Difficulty.values()[level - 1]);
+			requestRequiredValue();
+			return state();
+		case "QUIT":
+			return "BYE";
+		default:
+			return "ERR unknown request: " + words[0];
+		}
+	}
+
+	/**
+	 * Describes the result of an action.
+	 *
+	 * @param delta - What the action changed.
+	 * @return - The reply line.
+	 */
+	private String reply(GameDelta delta)
+	{
+		if(!delta.isAccepted())
+			return "NO " + delta.rejection();
+
+		if(delta.isRequiredValueStale())
+			requestRequiredValue();
+
+		StringBuilder s = new StringBuilder("OK +");
+		cells(s, delta.added());
+		s.append(" -");
+		cells(s, delta.removed());
+		s.append(' ').append(delta.value()).append(' ').append(delta.score())
+			.append(' ');
+		requiredValue(s);
+		return s.append(' ').append(delta.expression()).toString();
+	}
+
+	/**
+	 * Describes the whole game.
+	 *
+	 * @return - The reply line.
+	 */
+	private String state()
+	{
+		StringBuilder s = new StringBuilder("STATE ");
+		for(int cell = 0; cell < engine.grid().cells(); cell++)
+			s.append(engine.grid().tileAt(cell).letter());
+
+		s.append(' ');
+		int[] path = engine.path();
+		if(path.length == 0) {
+			s.append('-');
+		} else {
+			cells(s, path);
+		}
+
+		s.append(' ').append(engine.value()).append(' ').append(engine.score())
+			.append(' ');
+		requiredValue(s);
+		s.append(' ').append(engine.difficulty().ordinal() + 1).append(' ')
+			.append(engine.expression());
+		return s.toString();
+	}
+
+	private void requiredValue(StringBuilder s)
+	{
+		if(engine.hasRequiredValue()) {
+			s.append(engine.requiredValue());
+		} else {
+			s.append('?');
+		}
+	}
+
+	private static void cells(StringBuilder s, int[] cells)
+	{
+		for(int i = 0; i < cells.length; i++)
+		{
+			if(i > 0)
+				s.append(',');
+			s.append(cells[i]);
+		}
+	}
+
+	/**
+	 * Starts generating a required value for the board and difficulty,
+	 * replacing any being generated for an old one. Cancelling the old one
+	 * stops its search.
+	 */
+	private void requestRequiredValue()
+	{
+		if(pending != null)
+			pending.cancel(false);
+		failed = false;
+		pending = server.requiredValue(engine.difficulty(), engine.rootState());
+	}
+
+	/**
+	 * Gives the engine the required value if it has been generated, or
+	 * notes that it could not be, as the pool turned the search away or the
+	 * search failed, so that the next STATE request asks again.
+	 */
+	private void collectRequiredValue()
+	{
+		if(pending == null || !pending.isDone())
+			return;
+
+		try {
+			engine.setRequiredValue(pending.get());
+		} catch(ExecutionException e) {
+			// The player sees "?" until the next STATE or LEVEL request.
+			failed = true;
+		} catch(InterruptedException e) {
+			// get() does not block once the future is done.
+			Thread.currentThread().interrupt();
+		} finally {
+			pending = null;
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Grid;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.TileCollection;
+
+/**
+ * Checks that TargetSolver only calls a path already made when it could be
+ * submitted as it is.
+ * 
+ * @author Navid
+ *
+ */
+public class TargetSolverTest {
+
+	private static final int MAX_MOVES = 6;
+
+	@Test
+	public void pathEndingOnOperatorIsNotAlreadyMade()
+	{
+		for(long seed = 1; seed <= 20; seed++)
+		{
+			GameState root = new GameState(new Grid(8, 8,
+					new TileCollection(seed)));
+			Board board = root.getBoard();
+
+			// A number then an operator: the value is the number's, but the
+			// expression is unfinished.
+			for(long first = root.moves(); first != 0; first &= first - 1)
+			{
+				GameState number = root.play(
+						Long.numberOfTrailingZeros(first));
+				for(long next = number.moves(); next != 0; next &= next - 1)
+				{
+					GameState gs = number.play(
+							Long.numberOfTrailingZeros(next));
+					assertTrue(board.isOperator(gs.getLastCell()));
+
+					int target = gs.getAccumulator();
+					long path = TargetSolver.shortestPath(gs, target,
+							MAX_MOVES);
+					assertNotEquals(PackedPath.EMPTY, path);
+					if(path == PackedPath.NONE)
+						continue;
+
+					GameState end = PackedPath.replay(gs, path);
+					assertFalse(board.isOperator(end.getLastCell()));
+					assertEquals(target, end.getAccumulator());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void pathEndingOnNumberIsAlreadyMade()
+	{
+		GameState root = new GameState(new Grid(8, 8, new TileCollection(1L)));
+		GameState gs = root.play(Long.numberOfTrailingZeros(root.moves()));
+
+		assertEquals(PackedPath.EMPTY, TargetSolver.shortestPath(gs,
+				gs.getAccumulator(), MAX_MOVES));
+	}
+}
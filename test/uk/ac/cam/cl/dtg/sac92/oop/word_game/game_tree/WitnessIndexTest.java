@@ -0,0 +1,75 @@
+package uk.ac.cam.cl.dtg.sac92.oop.word_game.game_tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.Grid;
+import uk.ac.cam.cl.dtg.sac92.oop.word_game.grid.TileCollection;
+
+/**
+ * Checks that a full WitnessIndex keeps the same values and paths however
+ * the paths are offered, so that the parallel walk agrees with the serial
+ * one when the cap is hit.
+ * 
+ * @author Navid
+ *
+ */
+public class WitnessIndexTest {
+
+	private static final int DEPTH = 8;
+	// Far fewer values than a board reaches at DEPTH.
+	private static final int CAP = 40;
+
+	@Test
+	public void parallelKeepsSerialWitnessesWhenFull()
+	{
+		for(long seed = 1; seed <= 5; seed++)
+		{
+			GameState gs = new GameState(new Grid(8, 8,
+					new TileCollection(seed)));
+			WitnessIndex serial = new WitnessIndex(CAP);
+			WitnessIndex parallel = new WitnessIndex(CAP);
+			ValueHistogram histogram = ValueEnumerator.histogram(gs, DEPTH,
+					null, serial);
+			ValueEnumerator.parallelHistogram(gs, DEPTH, null, parallel);
+
+			assertTrue(histogram.distinct() > CAP);
+			assertFalse(serial.isComplete());
+			assertFalse(parallel.isComplete());
+			assertEquals(CAP, serial.size());
+			assertEquals(CAP, parallel.size());
+			for(int value : histogram.rankedValues())
+				assertEquals(serial.witness(value), parallel.witness(value));
+		}
+	}
+
+	@Test
+	public void fullIndexDoesNotDependOnOrder()
+	{
+		int[] values = {7, -3, 12, 0, 5, 40, -8, 2};
+		long[] paths = new long[values.length];
+		for(int i = 0; i < values.length; i++)
+		{
+			long path = PackedPath.EMPTY;
+			for(int m = 0; m <= i % 3; m++)
+				path = PackedPath.append(path, (i + m) % 64);
+			paths[i] = path;
+		}
+
+		WitnessIndex forwards = new WitnessIndex(4);
+		WitnessIndex backwards = new WitnessIndex(4);
+		for(int i = 0; i < values.length; i++)
+		{
+			forwards.offer(values[i], paths[i]);
+			backwards.offer(values[values.length - 1 - i],
+					paths[values.length - 1 - i]);
+		}
+
+		for(int value : values)
+			assertEquals(forwards.witness(value), backwards.witness(value));
+		assertEquals(4, forwards.size());
+	}
+}